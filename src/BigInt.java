@@ -1,4 +1,26 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
 /**
  * BigInt - numeric-like object for handling large integer arithmetic.
  * The BigInt class can handle Comparison, Addition, Subtraction, Multiplication and division
@@ -8,93 +30,457 @@ import java.util.ArrayList;
  * interaction - I'd be honored. In any other case, have you considered that Java has
  * a standard <a href="https://docs.oracle.com/javase/7/docs/api/java/math/BigInteger.html">BigInteger</a> implementation?
  * Addition and subtraction are computed with the standard algorithms (carry/borrow - O(n)).
- * Multiplication is computed with karatsuba's multiplication algorithm (approximately O(n ^ 1.58)).
- * Division is computed with the numerator doubling method (O(n^2)).
- * This implementation is not thread safe.
+ * Multiplication is computed with the long multiplication algorithm for short values, karatsuba's
+ * multiplication algorithm (approximately O(n ^ 1.58)) for longer values, Toom-Cook's 3-way
+ * multiplication algorithm (approximately O(n ^ 1.46)) for even longer values, and a number
+ * theoretic transform (O(n * log(n))) for the longest.
+ * Division is computed with Knuth's long division (Algorithm D - O(n^2)), and with Burnikel and
+ * Ziegler's recursive division (O(M(n) * log(n)), M(n) being the cost of multiplication) for large divisors.
+ * BigInts are immutable, and can be shared freely between threads.
  * Yours truly,
  *  Yehuda Klein - yehudak12321@gmail.com
  */
 public class BigInt implements Comparable<BigInt> {
     /*
-    The BigInt uses an ArrayList 'digits' of ints between [0, 10^9)
+    The BigInt uses an int array 'digits' of ints between [0, 10^9)
     to represent a positive number, and a 'sign' int (-1,1) to
     allow for negative number representation.
-    The digits in the array list are stored from the least
-    significant digit (digits[0]) to most significant (digits[last]).
-    The list having no leading zeros is a class invariable that should
+    The digits in the array are stored from the least
+    significant digit (digits[0]) to most significant (digits[length - 1]).
+    Only the first 'length' cells of the array are in use - the array may
+    be longer than that, which lets the arithmetic methods allocate their
+    result once (at its maximal possible size) and never resize it.
+    The used digits having no leading zeros is a class invariable that should
     always be kept. The same goes for the value zero always being
     considered positive (sign == 1).
-    This implementation is NOT thread safe, because sign changes are applied
-    to input BigInt parameters for some calculations. In order to make this
-    BigInt thread safe consider deep-copying all parameters to arithmetic
-    methods before initiating the calculation (in or outside of this file,
-    preferably in).
-     */
-    private final int BASE = 1000000000; // a billion, digit to digit addition can be performed within signed integers
-    private final int MAX_DIGIT = BASE - 1;
-    // for returning values, ZERO and ONE should be
-    // deep-copied to avoid changes to static variables
-    // outside of this class
-    static final BigInt ZERO = new BigInt("0");
-    static final BigInt ONE = new BigInt("1");
-    ArrayList<Integer> digits = new ArrayList<Integer>();
-    int sign = 1;
+    A BigInt is never changed after it is constructed - neither its fields nor
+    the used cells of its digits array - and no method changes its parameters,
+    so results may share digit arrays with other BigInts (or be ZERO, ONE or
+    even 'this'), and any BigInt can be used by several threads at once without
+    synchronization. The algorithm thresholds below are the only mutable state,
+    and are meant to be set up front as configuration.
+     */
+    static final int BASE = 1000000000; // a billion, digit to digit addition can be performed within signed integers
+    private static final int MAX_DIGIT = BASE - 1;
+    private static final int DIGIT_WIDTH = 9; // decimal characters per digit
+    // 'compact' of the values that don't fit in a long (see below)
+    private static final long INFLATED = Long.MIN_VALUE;
+    // the magnitude of Long.MIN_VALUE, the one long value that is not compact
+    private static final int[] LONG_MIN_MAGNITUDE = { 854775808, 223372036, 9 };
+    // valueOf returns the same instances for the values in [MIN_CACHED, MAX_CACHED]
+    private static final int MIN_CACHED = -128;
+    private static final int MAX_CACHED = 1024;
+    private static final BigInt[] CACHE = new BigInt[MAX_CACHED - MIN_CACHED + 1];
+    static {
+        for (int value = MIN_CACHED; value <= MAX_CACHED; value++) {
+            CACHE[value - MIN_CACHED] = fromLong(value);
+        }
+    }
+    // being immutable, ZERO and ONE are returned as they are
+    static final BigInt ZERO = valueOf(0);
+    static final BigInt ONE = valueOf(1);
+    // size thresholds (in digits) for switching between algorithms. These are not final
+    // so that they can be tuned - through system properties, or in code (see BigIntBenchmark).
+    // Division of a numerator with at least BURNIKEL_ZIEGLER_OFFSET more digits than a
+    // divisor of at least BURNIKEL_ZIEGLER_THRESHOLD digits is done recursively
+    static int BURNIKEL_ZIEGLER_THRESHOLD = Integer.getInteger("bigint.burnikelZieglerThreshold", 160);
+    static int BURNIKEL_ZIEGLER_OFFSET = Integer.getInteger("bigint.burnikelZieglerOffset", 80);
+    // Multiplication with a factor shorter than KARATSUBA_THRESHOLD digits is done with the long
+    // multiplication, and with karatsuba's method unless a factor has TOOM_COOK_THRESHOLD digits
+    static int KARATSUBA_THRESHOLD = Integer.getInteger("bigint.karatsubaThreshold", 40);
+    static int TOOM_COOK_THRESHOLD = Integer.getInteger("bigint.toomCookThreshold", 240);
+    // and with the number theoretic transform if both factors have NTT_THRESHOLD digits
+    static int NTT_THRESHOLD = Integer.getInteger("bigint.nttThreshold", 1500);
+    // a factor at least UNBALANCED_RATIO times as long as the other is multiplied in blocks of the
+    // other's length (see unbalancedMultiply)
+    static int UNBALANCED_RATIO = Integer.getInteger("bigint.unbalancedRatio", 2);
+    // multiplyParallel only splits multiplications of factors of PARALLEL_THRESHOLD digits into tasks
+    static int PARALLEL_THRESHOLD = Integer.getInteger("bigint.parallelThreshold", 500);
+    // dotParallel splits dot products into tasks of up to PARALLEL_DOT_THRESHOLD terms
+    static int PARALLEL_DOT_THRESHOLD = Integer.getInteger("bigint.parallelDotThreshold", 256);
+    // and sumParallel, productParallel and factorialParallel split their values into tasks of up to
+    // PARALLEL_REDUCE_THRESHOLD values
+    static int PARALLEL_REDUCE_THRESHOLD = Integer.getInteger("bigint.parallelReduceThreshold", 64);
+    // the same as the multiplication thresholds, for squaring (where the long
+    // multiplication does about half the work, so it stays faster for longer)
+    static int KARATSUBA_SQUARE_THRESHOLD = Integer.getInteger("bigint.karatsubaSquareThreshold", 80);
+    static int TOOM_COOK_SQUARE_THRESHOLD = Integer.getInteger("bigint.toomCookSquareThreshold", 320);
+    // values of PARALLEL_TO_STRING_THRESHOLD digits are converted to strings in parallel
+    // chunks of TO_STRING_CHUNK digits
+    static int PARALLEL_TO_STRING_THRESHOLD = Integer.getInteger("bigint.parallelToStringThreshold", 1 << 16);
+    private static final int TO_STRING_CHUNK = 1 << 13;
+    // the binary format of toByteArray/writeTo: a version byte, a sign byte (1 or -1), the number
+    // of digits as an int, and the digits from the least significant as ints - all big-endian
+    static final byte FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 6;
+    // channels are written and read through buffers of up to IO_CHUNK_BYTES bytes
+    private static final int IO_CHUNK_BYTES = 1 << 16;
+    // parse(Reader) and parse(ReadableByteChannel) read PARSE_CHUNK characters at a time
+    private static final int PARSE_CHUNK = 1 << 13;
+    // scratch arrays of up to SCRATCH_MAX_LENGTH digits are kept for reuse (see Scratch), up to
+    // SCRATCH_MAX_RETAINED digits in all for every thread
+    static int SCRATCH_MAX_LENGTH = Integer.getInteger("bigint.scratchMaxLength", 1 << 18);
+    static int SCRATCH_MAX_RETAINED = Integer.getInteger("bigint.scratchMaxRetained", 1 << 20);
+    // addition and subtraction of values of VECTOR_THRESHOLD digits use VECTOR_KERNELS, if available
+    static int VECTOR_THRESHOLD = Integer.getInteger("bigint.vectorThreshold", 64);
+    static final VectorKernels VECTOR_KERNELS = loadVectorKernels();
+    final int[] digits;
+    final int length;
+    final int sign;
+    // the value itself if it fits in a long (a magnitude of up to 3 digits), and INFLATED
+    // otherwise - arithmetic between two compact values is done on the longs directly
+    final long compact;
 
     /**
      * Creates a new BigInt with value equal to strNum.
      * Input can only have a single sign char ('-'/'+') in front
      * of numeric characters in base 10 (e.g. "77", "+77", "-77").
-     * @param strNum Value as String
+     * @param strNum Value as a String (or any other CharSequence)
+     */
+    public BigInt(CharSequence strNum) {
+        this(parseChars(strNum, 0, strNum == null ? 0 : strNum.length()));
+    }
+
+    /**
+     * Creates a new BigInt with value equal to the characters in
+     * chars[offset, offset + length), in the same format as BigInt(CharSequence).
+     * @param chars
+     * @param offset Index of the first character
+     * @param length Number of characters
+     */
+    public BigInt(char[] chars, int offset, int length) {
+        this(parseChars(chars == null ? null : CharBuffer.wrap(chars, offset, length), 0, length));
+    }
+
+    /**
+     * Creates a new BigInt with value equal to the ASCII characters in
+     * bytes[offset, offset + length), in the same format as BigInt(CharSequence).
+     * @param bytes
+     * @param offset Index of the first character
+     * @param length Number of characters
+     */
+    public BigInt(byte[] bytes, int offset, int length) {
+        this(parseBytes(bytes == null ? null : ByteBuffer.wrap(bytes, offset, length), offset, offset + length));
+    }
+
+    /**
+     * Creates a new BigInt with value equal to the ASCII characters remaining in 'bytes'
+     * (between its position and limit), in the same format as BigInt(CharSequence).
+     * The position of the buffer is not changed.
+     * @param bytes
+     */
+    public BigInt(ByteBuffer bytes) {
+        this(parseBytes(bytes, bytes == null ? 0 : bytes.position(), bytes == null ? 0 : bytes.limit()));
+    }
+
+    // adopt the digits of a newly parsed BigInt
+    private BigInt(BigInt parsed) {
+        this(parsed.digits, parsed.length, parsed.sign);
+    }
+
+    /*
+    Parsing of the characters in [from, to). Every 9 characters (counted from the right) are
+    accumulated into a digit in base 10^9 right away, so that besides the digits array
+    nothing is allocated - unless the input is invalid, in which case it is copied into
+    the exception's message.
      */
-    public BigInt(String strNum) {
-        if (strNum == null || strNum.length() == 0) {
+    private static BigInt parseChars(CharSequence chars, int from, int to) {
+        if (chars == null || from == to) {
             throw new IllegalArgumentException("Input to BigInt constructor " +
                     "was empty or null.");
         }
+        return parseCodeUnits(chars::charAt, from, to);
+    }
 
-        int signLocation = -1;
-
-        // if a sign character was given, set 'sign' and adjust parsing.
-        if (strNum.charAt(0) == '-') {
-            sign = -1;
-            signLocation = 0;
-        }
-        if (strNum.charAt(0) == '+') {
-            signLocation = 0;
+    // the same as parseChars, for ASCII characters between the absolute indices [from, to) of 'bytes'
+    private static BigInt parseBytes(ByteBuffer bytes, int from, int to) {
+        if (bytes == null || from == to) {
+            throw new IllegalArgumentException("Input to BigInt constructor " +
+                    "was empty or null.");
         }
+        return parseCodeUnits(i -> bytes.get(i) & 0xFF, from, to);
+    }
 
-        // parse per digit in Base 10^9
-        int DIGIT_STEP = 9;
-        for (int i = strNum.length(); i > signLocation + 1; i -= DIGIT_STEP) {
-            try {
-                int start = Math.max(i - DIGIT_STEP, signLocation + 1);
-                String subInt = strNum.substring(start, i);
-                int parse = Integer.parseInt(subInt);
-                digits.add(parse);
-            } catch (NumberFormatException nfe) {
-                throw new IllegalArgumentException("Attempted to parse as int a non-digit character," +
-                        " in BigInt input " + strNum + " at location " + i);
+    /*
+    Parses the characters at the indices [from, to) of an input, where 'at' returns the
+    character at an index (as a char, or an ASCII byte) - the one parsing loop of parseChars
+    and parseBytes.
+     */
+    private static BigInt parseCodeUnits(IntUnaryOperator at, int from, int to) {
+        int first = at.applyAsInt(from);
+        int digitsStart = parseSign((char)first, from, to);
+        int[] digits = new int[(to - digitsStart + DIGIT_WIDTH - 1) / DIGIT_WIDTH];
+        int length = 0;
+        for (int end = to; end > digitsStart; end -= DIGIT_WIDTH) {
+            int digit = 0;
+            for (int i = Math.max(end - DIGIT_WIDTH, digitsStart); i < end; i++) {
+                int decimal = at.applyAsInt(i) - '0';
+                if (decimal < 0 || decimal > 9) {
+                    StringBuilder input = new StringBuilder(to - from);
+                    for (int j = from; j < to; j++) {
+                        input.append((char)at.applyAsInt(j));
+                    }
+                    throw nonDigitException(input, end - from);
+                }
+                digit = digit * 10 + decimal;
             }
+            digits[length++] = digit;
         }
+        return parsedResult(digits, first == '-' ? -1 : 1);
+    }
 
-        // remove leading zeros
-        int i = digits.size() - 1;
-        while (i > 0 && digits.get(i) == 0) i--;
-        if (i < digits.size() - 1) {
-            digits = new ArrayList<Integer>(digits.subList(0, i + 1));
+    /*
+    Returns the index where the digits of an input in [from, to) start, given its first character.
+     */
+    private static int parseSign(char first, int from, int to) {
+        // if a sign character was given, adjust parsing.
+        int digitsStart = (first == '-' || first == '+') ? from + 1 : from;
+        if (digitsStart == to) {
+            throw new IllegalArgumentException("Input to BigInt constructor " +
+                    "has a sign but no digits.");
         }
+        return digitsStart;
+    }
+
+    // 'location' is the end of the 9 character group (from the start of the input) that has a non-digit
+    private static IllegalArgumentException nonDigitException(CharSequence input, int location) {
+        return new IllegalArgumentException("Attempted to parse as int a non-digit character," +
+                " in BigInt input " + input + " at location " + location);
+    }
+
+    private static BigInt parsedResult(int[] digits, int sign) {
+        // remove leading zeros
+        int length = stripLeadingZeros(digits, digits.length);
 
         // if value of input is 0, it will be considered
         // positive, regardless of input.
-        if ((digits.size() == 1) && digits.get(0) == 0) {
-            sign = 1;
+        return signedResult(digits, length, sign);
+    }
+
+    /**
+     * Reads a BigInt from 'in' until its end, in the same format as BigInt(CharSequence).
+     * The characters are read in chunks and turned into digits as they arrive, so the input
+     * is never held as a whole - the memory used is about that of the resulting BigInt.
+     * @param in
+     * @return BigInt equal to the characters of 'in'
+     * @throws IOException If 'in' fails
+     * @throws IllegalArgumentException If the characters are not a number
+     */
+    public static BigInt parse(Reader in) throws IOException, IllegalArgumentException {
+        StreamParser parser = new StreamParser();
+        char[] chunk = new char[PARSE_CHUNK];
+        IntUnaryOperator at = i -> chunk[i];
+        for (int count = in.read(chunk); count >= 0; count = in.read(chunk)) {
+            parser.accept(at, count);
+        }
+        return parser.result();
+    }
+
+    /**
+     * Reads a BigInt from a blocking channel until its end, in the same format as
+     * BigInt(CharSequence) with ASCII characters, like parse(Reader).
+     * @param in
+     * @return BigInt equal to the characters of 'in'
+     * @throws IOException If 'in' fails
+     * @throws IllegalArgumentException If the characters are not a number
+     */
+    public static BigInt parse(ReadableByteChannel in) throws IOException, IllegalArgumentException {
+        StreamParser parser = new StreamParser();
+        ByteBuffer chunk = ByteBuffer.allocate(PARSE_CHUNK);
+        byte[] bytes = chunk.array();
+        IntUnaryOperator at = i -> bytes[i] & 0xFF;
+        while (in.read(chunk) >= 0) {
+            parser.accept(at, chunk.position());
+            chunk.clear();
+        }
+        return parser.result();
+    }
+
+    /*
+    The state of parse(Reader) and parse(ReadableByteChannel). The digits are built from
+    the most significant, since that is where the input starts, and the place of the first
+    digit boundary is only known at the end of the input - so every group of 9 characters
+    is kept as a digit, and result() reverses them and divides away the padding of the last
+    group in a single pass. The digits array grows by half each time, so the input costs
+    about the 4 bytes of its final digit per 9 characters, instead of the 18 bytes of a String.
+     */
+    private static final class StreamParser {
+        private int[] groups = new int[16];
+        private int count; // full groups in 'groups' (without the leading zero groups)
+        private int group; // the value of the current group
+        private int groupWidth; // and its number of characters
+        private long position; // the number of characters accepted so far
+        private boolean hasSign;
+        private int sign = 1;
+
+        /*
+        Accepts the first 'length' characters of a chunk, where 'at' returns the character at
+        an index (as a char, or an ASCII byte).
+         */
+        void accept(IntUnaryOperator at, int length) {
+            int i = 0;
+            if (position == 0 && length > 0 && (at.applyAsInt(0) == '-' || at.applyAsInt(0) == '+')) {
+                sign = at.applyAsInt(0) == '-' ? -1 : 1;
+                hasSign = true;
+                i++;
+            }
+            // the group is kept in locals during the chunk
+            int group = this.group;
+            int groupWidth = this.groupWidth;
+            while (i < length) {
+                // up to the end of the group, or of the chunk
+                int end = Math.min(length, i + DIGIT_WIDTH - groupWidth);
+                for (int j = i; j < end; j++) {
+                    int decimal = at.applyAsInt(j) - '0';
+                    if (decimal < 0 || decimal > 9) {
+                        throw nonDigitException(position + j);
+                    }
+                    group = group * 10 + decimal;
+                }
+                groupWidth += end - i;
+                i = end;
+                if (groupWidth == DIGIT_WIDTH) {
+                    pushGroup(group);
+                    group = 0;
+                    groupWidth = 0;
+                }
+            }
+            this.group = group;
+            this.groupWidth = groupWidth;
+            position += length;
+        }
+
+        BigInt result() {
+            if (position == 0) {
+                throw new IllegalArgumentException("Input to BigInt parse was empty.");
+            }
+            if (hasSign && position == 1) {
+                throw new IllegalArgumentException("Input to BigInt parse has a sign but no digits.");
+            }
+            // pad the last group to 9 characters, which multiplies the value by 10^padding
+            int padding = groupWidth == 0 ? 0 : DIGIT_WIDTH - groupWidth;
+            int scale = 1;
+            for (int i = 0; i < padding; i++) {
+                scale *= 10;
+            }
+            if (groupWidth > 0) {
+                push(group * scale);
+            }
+            if (count == 0) {
+                return ZERO;
+            }
+            for (int i = 0, j = count - 1; i < j; i++, j--) {
+                int swap = groups[i];
+                groups[i] = groups[j];
+                groups[j] = swap;
+            }
+            if (scale > 1) {
+                divideMagnitudeByDigit(groups, count, scale, groups); // exact, and in place
+            }
+            return signedResult(groups, stripLeadingZeros(groups, count), sign);
+        }
+
+        private void pushGroup(int group) {
+            // leading zero groups change nothing, and are not kept
+            if (count > 0 || group != 0) {
+                push(group);
+            }
+        }
+
+        private static IllegalArgumentException nonDigitException(long location) {
+            return new IllegalArgumentException("Attempted to parse as int a non-digit character," +
+                    " in BigInt input at location " + location);
+        }
+
+        private void push(int digit) {
+            if (count == groups.length) {
+                groups = Arrays.copyOf(groups, groups.length + (groups.length >> 1));
+            }
+            groups[count++] = digit;
         }
     }
 
-    // create a signed BigInt from an ArrayList of digits.
-    private BigInt(ArrayList<Integer> digits, int sign) {
+    // create a signed BigInt from the first 'length' cells of an array of digits.
+    private BigInt(int[] digits, int length, int sign) {
         this.digits = digits;
+        this.length = length;
         this.sign = sign;
+        this.compact = compactValue(digits, length, sign);
+    }
+
+    // the value as a long, or INFLATED if it does not fit
+    private static long compactValue(int[] digits, int length, int sign) {
+        if (length > 3) {
+            return INFLATED;
+        }
+        long magnitude = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            magnitude = magnitude * BASE + digits[i];
+        }
+        // Long.MAX_VALUE == 9223372036854775807 - so only leading digits up to 9 fit
+        if (length == 3 && (digits[2] > 9 || magnitude < 0)) {
+            return INFLATED;
+        }
+        return sign * magnitude;
+    }
+
+    /**
+     * Returns a BigInt with the given value. Small values are cached, so
+     * the same instance may be returned for several calls.
+     * @param value
+     * @return BigInt equal to value
+     */
+    public static BigInt valueOf(long value) {
+        if (value >= MIN_CACHED && value <= MAX_CACHED) {
+            return CACHE[(int)value - MIN_CACHED];
+        }
+        return fromLong(value);
+    }
+
+    private static BigInt fromLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            return new BigInt(LONG_MIN_MAGNITUDE, LONG_MIN_MAGNITUDE.length, -1);
+        }
+        long magnitude = Math.abs(value);
+        int[] digits = new int[3];
+        int length = 0;
+        do {
+            digits[length++] = (int)(magnitude % BASE);
+            magnitude /= BASE;
+        } while (magnitude > 0);
+        return new BigInt(digits, length, value < 0 ? -1 : 1);
+    }
+
+    /**
+     * Returns the lowest 64 bits of this value (in two's complement), like a
+     * narrowing conversion of a primitive - so if this value does not fit in a
+     * long, the result has a different magnitude and possibly a different sign.
+     * @return this as a long, truncated
+     */
+    public long longValue() {
+        if (compact != INFLATED) {
+            return compact;
+        }
+        // the arithmetic wraps around modulo 2^64, which is exactly the truncation
+        long value = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            value = value * BASE + digits[i];
+        }
+        return sign * value;
+    }
+
+    /**
+     * @return this as a long
+     * @throws ArithmeticException If this value does not fit in a long
+     */
+    public long longValueExact() throws ArithmeticException {
+        if (compact != INFLATED) {
+            return compact;
+        }
+        if (sign < 0 && compareMagnitudes(digits, length, LONG_MIN_MAGNITUDE, LONG_MIN_MAGNITUDE.length) == 0) {
+            return Long.MIN_VALUE;
+        }
+        throw new ArithmeticException("Attempted to convert to long a BigInt out of the long range");
     }
 
     /**
@@ -102,77 +488,362 @@ public class BigInt implements Comparable<BigInt> {
      * @return New equal and independent BigInt.
      */
     public BigInt deepCopy() {
-        ArrayList<Integer> copyDigits = new ArrayList<Integer>(digits);
-        return new BigInt(copyDigits, this.sign);
+        int[] copyDigits = Arrays.copyOf(digits, length);
+        return new BigInt(copyDigits, length, this.sign);
     }
 
     /**
      * @return Value as a numeric string in base10.
      */
     public String toString() {
-        StringBuilder buff = new StringBuilder();
+        if (compact != INFLATED) {
+            return Long.toString(compact);
+        }
+        // every digit but the leading one is written as exactly 9 decimal characters
+        int leadingWidth = decimalWidth(digits[length - 1]);
+        int signWidth = sign < 0 ? 1 : 0;
+        char[] chars = new char[signWidth + leadingWidth + DIGIT_WIDTH * (length - 1)];
         if (sign < 0) {
-            buff.append('-');
+            chars[0] = '-';
         }
         // leading digit formatted without leading zeros
-        buff.append(digits.get(digits.size() - 1));
-        // format other digits
-        for (int i = digits.size() - 2; i > -1; i--) {
-            buff.append(String.format("%09d", digits.get(i)));
+        formatDigit(chars, signWidth + leadingWidth, digits[length - 1], leadingWidth);
+
+        // format other digits - digit i ends (length - 1 - i) * 9 characters from the end
+        int lowDigits = length - 1;
+        if (lowDigits < PARALLEL_TO_STRING_THRESHOLD) {
+            writeDigitRange(chars, 0, lowDigits);
         }
-        return buff.toString();
+        else {
+            // the digits are independent, so large values are written in parallel chunks
+            int chunks = (lowDigits + TO_STRING_CHUNK - 1) / TO_STRING_CHUNK;
+            IntStream.range(0, chunks).parallel().forEach(chunk ->
+                    writeDigitRange(chars, chunk * TO_STRING_CHUNK, Math.min((chunk + 1) * TO_STRING_CHUNK, lowDigits)));
+        }
+        return new String(chars);
     }
 
-    /**
-     * @param other the object to be compared.
-     * @return Comparison by value
+    /*
+    Writes the digits in [from, to) (from the lower 'length - 1' digits) to their places in 'chars'.
      */
-    public int compareTo(BigInt other) {
-        // try comparing by sign
-        if (this.sign > other.sign) {
-            return 1;
+    private void writeDigitRange(char[] chars, int from, int to) {
+        for (int i = from; i < to; i++) {
+            formatDigit(chars, chars.length - i * DIGIT_WIDTH, digits[i], DIGIT_WIDTH);
         }
-        else if (this.sign < other.sign) {
-            return -1;
+    }
+
+    /*
+    Writes 'width' decimal characters of 'digit' (zero padded) into 'chars', ending right before 'end'.
+     */
+    private static void formatDigit(char[] chars, int end, int digit, int width) {
+        for (int i = end - 1; i >= end - width; i--) {
+            chars[i] = (char)('0' + digit % 10);
+            digit /= 10;
         }
+    }
 
-        int lengthComparison = (this.digits.size()) - (other.digits.size());
-        // try comparing negatives by length
-        if (this.sign < 0 && lengthComparison > 0) {
-            return -1;
+    // the same as formatDigit, with ASCII characters
+    private static void formatDigit(byte[] bytes, int end, int digit, int width) {
+        for (int i = end - 1; i >= end - width; i--) {
+            bytes[i] = (byte)('0' + digit % 10);
+            digit /= 10;
         }
-        else if (this.sign < 0 && lengthComparison < 0) {
-            return 1;
+    }
+
+    /**
+     * Writes the value (the same characters as toString) to 'out', in chunks of up to
+     * TO_STRING_CHUNK digits - unlike toString, the whole string is never held in memory.
+     * A PrintStream is both an Appendable and an OutputStream, so it has to be passed as one of them.
+     * @param out A Writer, StringBuilder or any other Appendable
+     * @throws IOException If 'out' fails
+     */
+    public void writeDecimal(Appendable out) throws IOException {
+        if (compact != INFLATED) {
+            out.append(Long.toString(compact));
+            return;
         }
-        else if (this.sign > 0 && lengthComparison > 0) {
-            return 1;
+        char[] chunk = new char[DIGIT_WIDTH * Math.min(length, TO_STRING_CHUNK)];
+        if (sign < 0) {
+            out.append('-');
         }
-        else if (this.sign > 0 && lengthComparison < 0) {
-            return -1;
+        // the leading digit without leading zeros, then every other digit as exactly 9 characters
+        int used = decimalWidth(digits[length - 1]);
+        formatDigit(chunk, used, digits[length - 1], used);
+        for (int i = length - 2; i >= 0; i--) {
+            if (used + DIGIT_WIDTH > chunk.length) {
+                appendChunk(out, chunk, used);
+                used = 0;
+            }
+            used += DIGIT_WIDTH;
+            formatDigit(chunk, used, digits[i], DIGIT_WIDTH);
+        }
+        appendChunk(out, chunk, used);
+    }
+
+    private static void appendChunk(Appendable out, char[] chunk, int length) throws IOException {
+        if (out instanceof Writer writer) {
+            writer.write(chunk, 0, length);
         }
-        // compare digits O(n)
         else {
-            int i = this.digits.size() - 1;
-            while (i >= 0 && this.digits.get(i).equals(other.digits.get(i))) {
-                i--;
+            out.append(CharBuffer.wrap(chunk, 0, length));
+        }
+    }
+
+    /**
+     * Writes the value (the same characters as toString, in ASCII) to 'out', in chunks of
+     * up to TO_STRING_CHUNK digits - unlike toString, the whole string is never held in memory.
+     * @param out
+     * @throws IOException If 'out' fails
+     */
+    public void writeDecimal(OutputStream out) throws IOException {
+        byte[] chunk = new byte[DIGIT_WIDTH * Math.min(length, TO_STRING_CHUNK) + 1];
+        int used = 0;
+        if (sign < 0) {
+            chunk[used++] = '-';
+        }
+        int leadingWidth = decimalWidth(digits[length - 1]);
+        used += leadingWidth;
+        formatDigit(chunk, used, digits[length - 1], leadingWidth);
+        for (int i = length - 2; i >= 0; i--) {
+            if (used + DIGIT_WIDTH > chunk.length) {
+                out.write(chunk, 0, used);
+                used = 0;
             }
-            if (i == -1) {
-                return 0;
+            used += DIGIT_WIDTH;
+            formatDigit(chunk, used, digits[i], DIGIT_WIDTH);
+        }
+        out.write(chunk, 0, used);
+    }
+
+    // the number of decimal characters needed for a digit in [0, BASE)
+    private static int decimalWidth(int digit) {
+        int width = 1;
+        for (int bound = 10; width < DIGIT_WIDTH && digit >= bound; bound *= 10) {
+            width++;
+        }
+        return width;
+    }
+
+    /**
+     * @return The number of bytes written by toByteArray and writeTo
+     */
+    public int serializedLength() {
+        return HEADER_BYTES + Integer.BYTES * length;
+    }
+
+    /**
+     * Returns this value in a compact binary format (read back by fromByteArray and readFrom):
+     * a version byte, a sign byte, the number of (base 10^9) digits and the digits themselves,
+     * 4 bytes each - less than half the size of the decimal string, and no conversion to make.
+     * @return this, serialized
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[serializedLength()];
+        writeTo(ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    /**
+     * Writes this value (in the format of toByteArray) to 'buffer', starting at its position
+     * and advancing it. The byte order of the buffer is ignored - the format is always big-endian.
+     * @param buffer
+     * @throws java.nio.BufferOverflowException If less than serializedLength() bytes remain in the buffer
+     */
+    public void writeTo(ByteBuffer buffer) {
+        if (buffer.remaining() < serializedLength()) {
+            throw new BufferOverflowException();
+        }
+        ByteBuffer view = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        view.put(FORMAT_VERSION).put((byte)sign).putInt(length);
+        view.asIntBuffer().put(digits, 0, length);
+        buffer.position(buffer.position() + serializedLength());
+    }
+
+    /**
+     * Writes this value (in the format of toByteArray) to a blocking channel, through a
+     * buffer of bounded size - the digits are copied into it in bulk, a chunk at a time.
+     * @param channel
+     * @throws IOException If the channel fails
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.min(serializedLength(), IO_CHUNK_BYTES));
+        buffer.put(FORMAT_VERSION).put((byte)sign).putInt(length);
+        int written = 0;
+        while (true) {
+            int count = Math.min(length - written, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(digits, written, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            written += count;
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
             }
-            int digitDiff = this.digits.get(i) - other.digits.get(i);
-            if (this.sign < 0 && digitDiff > 0) {
-                return -1;
+            if (written == length) {
+                return;
             }
-            else if (this.sign < 0 && digitDiff < 0) {
-                return 1;
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Reads a BigInt written by toByteArray.
+     * @param bytes
+     * @return The BigInt in 'bytes'
+     * @throws IllegalArgumentException If 'bytes' is not exactly a BigInt in the format of toByteArray
+     */
+    public static BigInt fromByteArray(byte[] bytes) throws IllegalArgumentException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        BigInt value;
+        try {
+            value = readFrom(buffer);
+        }
+        catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated BigInt bytes");
+        }
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException("Unexpected bytes after a BigInt");
+        }
+        return value;
+    }
+
+    /**
+     * Reads a BigInt written by writeTo(ByteBuffer) (or toByteArray), starting at the position
+     * of 'buffer' and advancing it past the value. The byte order of the buffer is ignored.
+     * @param buffer
+     * @return The BigInt at the position of 'buffer'
+     * @throws IllegalArgumentException If the bytes are not a BigInt in the format of toByteArray
+     * @throws java.nio.BufferUnderflowException If the buffer ends before the value does
+     */
+    public static BigInt readFrom(ByteBuffer buffer) throws IllegalArgumentException {
+        ByteBuffer view = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (view.remaining() < HEADER_BYTES) {
+            throw new BufferUnderflowException();
+        }
+        int sign = readHeader(view);
+        int length = view.getInt();
+        if (view.remaining() / Integer.BYTES < length) {
+            throw new BufferUnderflowException();
+        }
+        int[] digits = new int[length];
+        view.asIntBuffer().get(digits);
+        buffer.position(view.position() + length * Integer.BYTES);
+        return checkedResult(digits, length, sign);
+    }
+
+    /**
+     * Reads a BigInt written by writeTo(WritableByteChannel) (or toByteArray) from a blocking
+     * channel. Exactly the bytes of the value are read, so that more values (or other data)
+     * can follow it in the channel.
+     * @param channel
+     * @return The next BigInt in the channel
+     * @throws IOException If the channel fails
+     * @throws java.io.EOFException If the channel ends before the value does
+     * @throws IllegalArgumentException If the bytes are not a BigInt in the format of toByteArray
+     */
+    public static BigInt readFrom(ReadableByteChannel channel) throws IOException, IllegalArgumentException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header);
+        header.flip();
+        int sign = readHeader(header);
+        int length = header.getInt();
+        // the digits array grows as they arrive, so that a corrupt length
+        // can't allocate much more memory than the channel actually holds
+        ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, IO_CHUNK_BYTES / Integer.BYTES) * Integer.BYTES);
+        int[] digits = new int[Math.min(length, IO_CHUNK_BYTES)];
+        int read = 0;
+        while (read < length) {
+            int count = Math.min(length - read, buffer.capacity() / Integer.BYTES);
+            buffer.clear().limit(count * Integer.BYTES);
+            readFully(channel, buffer);
+            buffer.flip();
+            if (digits.length < read + count) {
+                digits = Arrays.copyOf(digits, (int)Math.min(length, 2L * digits.length));
             }
-            else if (this.sign > 0 && digitDiff > 0) {
-                return 1;
+            buffer.asIntBuffer().get(digits, read, count);
+            read += count;
+        }
+        return checkedResult(digits, length, sign);
+    }
+
+    /*
+    Reads the version and the sign from the header of a serialized BigInt, and returns the sign.
+     */
+    static int readHeader(ByteBuffer buffer) {
+        byte version = buffer.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported BigInt format version: " + version);
+        }
+        byte sign = buffer.get();
+        if (sign != 1 && sign != -1) {
+            throw new IllegalArgumentException("Illegal BigInt sign byte: " + sign);
+        }
+        int length = buffer.getInt(buffer.position());
+        if (length < 1) {
+            throw new IllegalArgumentException("Illegal BigInt digit count: " + length);
+        }
+        return sign;
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Channel ended inside a BigInt");
             }
-            else { // (this.sign > 0 && digitDiff < 0)
-                return -1;
+        }
+    }
+
+    /*
+    Create a BigInt from deserialized digits, making sure they keep the class invariables.
+     */
+    private static BigInt checkedResult(int[] digits, int length, int sign) {
+        for (int i = 0; i < length; i++) {
+            if (digits[i] < 0 || digits[i] >= BASE) {
+                throw new IllegalArgumentException("Illegal BigInt digit: " + digits[i]);
             }
         }
+        if (length > 1 && digits[length - 1] == 0) {
+            throw new IllegalArgumentException("BigInt digits with a leading zero");
+        }
+        return signedResult(digits, length, sign);
+    }
+
+    /**
+     * @param other the object to be compared.
+     * @return Comparison by value
+     */
+    public int compareTo(BigInt other) {
+        if (this.compact != INFLATED && other.compact != INFLATED) {
+            return Long.compare(this.compact, other.compact);
+        }
+        // try comparing by sign
+        if (this.sign > other.sign) {
+            return 1;
+        }
+        else if (this.sign < other.sign) {
+            return -1;
+        }
+        // same sign - compare magnitudes O(n), and flip the result for negatives
+        return this.sign * compareMagnitudes(this.digits, this.length, other.digits, other.length);
+    }
+
+    /*
+    Comparison of the non-negative values stored in the first 'firstLength' and
+    'secondLength' digits of the given arrays (without leading zeros).
+     */
+    private static int compareMagnitudes(int[] first, int firstLength, int[] second, int secondLength) {
+        // compare by length
+        if (firstLength != secondLength) {
+            return firstLength > secondLength ? 1 : -1;
+        }
+        // compare digits
+        int i = firstLength - 1;
+        while (i >= 0 && first[i] == second[i]) {
+            i--;
+        }
+        if (i == -1) {
+            return 0;
+        }
+        return first[i] > second[i] ? 1 : -1;
     }
 
     /**
@@ -186,13 +857,28 @@ public class BigInt implements Comparable<BigInt> {
         return (compareTo(other) == 0);
     }
 
+    /**
+     * @return A hash of the value, consistent with equals - of the long value when it fits
+     * in one, and of the sign and the used digits otherwise.
+     */
+    public int hashCode() {
+        if (compact != INFLATED) {
+            return Long.hashCode(compact);
+        }
+        int hash = 31 * sign + length;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + digits[i];
+        }
+        return hash;
+    }
+
     /*
      Addition and subtraction are computed with the private methods
      'addPositives' and 'subtractPositives' which - as you probably
-     guessed - handle addition and subtraction of non-negative values.
-     The public 'plus' and 'minus' methods convert whatever expression
-     is being calculated into an equivalent expression that can be
-     computed with only positive values.
+     guessed - handle addition and subtraction of magnitudes, ignoring
+     the signs of their parameters. The public 'plus' and 'minus' methods
+     convert whatever expression is being calculated into an equivalent
+     expression of magnitudes, and pass down the sign of its result.
      */
 
     /**
@@ -201,35 +887,19 @@ public class BigInt implements Comparable<BigInt> {
      * @return this + add
      */
     public BigInt plus(BigInt add) {
-        if (this.sign == add.sign) {
-            // a + b == |a|+|b|
-            if (this.sign > 0) {
-                return addPositives(this, add);
-            }
-            // a + b == -(|a|+|b|)
-            else {
-                BigInt result = addPositives(this, add); // addPositives is indifferent to sign
-                result.sign = -1;
-                return result;
+        if (this.compact != INFLATED && add.compact != INFLATED) {
+            long sum = this.compact + add.compact;
+            // overflow (the check of Math.addExact) - the sum has neither operand's sign
+            if (((this.compact ^ sum) & (add.compact ^ sum)) >= 0) {
+                return valueOf(sum);
             }
         }
-        else {
-            // a + b == a - |b|
-            if (this.sign > 0) {
-                add.sign = 1;
-                BigInt result = subtractPositives(this, add);
-                add.sign = -1;
-                return result;
-            }
-            // a + b == |a| - |b| >= 0 ? (b - |a|) : -(b - |a|)
-            else {
-                this.sign = 1;
-                BigInt result = subtractPositives(this, add);
-                result.sign = this.compareTo(add) > 0 ? -1 : 1;
-                this.sign = -1;
-                return result;
-            }
+        // a + b == sign(a) * (|a| + |b|)
+        if (this.sign == add.sign) {
+            return addPositives(this, add, this.sign);
         }
+        // a + b == sign(a) * (|a| - |b|)
+        return subtractPositives(this, add, this.sign);
     }
 
     /**
@@ -238,156 +908,821 @@ public class BigInt implements Comparable<BigInt> {
      * @return this - subtract
      */
     public BigInt minus(BigInt subtract) {
-        if (this.sign == subtract.sign) {
-            // a - b == a - b
-            if (this.sign >= 0) {
-                return subtractPositives(this, subtract);
-            }
-            // a - b == |b| - |a|
-            else {
-                subtract.sign = 1;
-                this.sign = 1;
-                BigInt result = subtractPositives(subtract, this);
-                subtract.sign = -1;
-                this.sign = -1;
-                return result;
+        if (this.compact != INFLATED && subtract.compact != INFLATED) {
+            long difference = this.compact - subtract.compact;
+            // overflow (the check of Math.subtractExact) - operands of different signs,
+            // and a difference without the sign of this
+            if (((this.compact ^ subtract.compact) & (this.compact ^ difference)) >= 0) {
+                return valueOf(difference);
             }
         }
-        else {
-            // a - b == a + |b|
-            if (this.sign > 0) {
-                subtract.sign = 1;
-                BigInt result = addPositives(this, subtract);
-                subtract.sign = -1;
-                return result;
-            }
-            // a - b == -(|a| + b)
-            else {
-                this.sign = 1;
-                BigInt result = addPositives(this, subtract);
-                result.sign = -1;
-                this.sign = -1;
-                return result;
-            }
+        // a - b == sign(a) * (|a| - |b|)
+        if (this.sign == subtract.sign) {
+            return subtractPositives(this, subtract, this.sign);
         }
+        // a - b == sign(a) * (|a| + |b|)
+        return addPositives(this, subtract, this.sign);
+    }
+
+    /*
+    long addition - sign * (|first| + |second|)
+     */
+    private static BigInt addPositives(BigInt first, BigInt second, int sign) {
+        int[] result = new int[Math.max(first.length, second.length) + 1];
+        int resultLength = addMagnitudes(first.digits, first.length, second.digits, second.length, result);
+        return new BigInt(result, resultLength, sign);
     }
 
     /*
-    long addition
+    Writes first + second into 'result' (which must have room for the longer input
+    and one extra digit) and returns the number of digits used.
      */
-    private BigInt addPositives(BigInt first, BigInt second) {
+    private static int addMagnitudes(int[] first, int firstLength, int[] second, int secondLength, int[] result) {
         // put longer digits as first
-        if (first.digits.size() < second.digits.size()) {
-            BigInt temp = first;
+        if (firstLength < secondLength) {
+            int[] temp = first;
             first = second;
             second = temp;
+            int tempLength = firstLength;
+            firstLength = secondLength;
+            secondLength = tempLength;
         }
-        ArrayList<Integer> result = new ArrayList<Integer>();
         int carry = 0;
-        int longerOnlyStart = second.digits.size();
+        int i = 0;
+        if (VECTOR_KERNELS != null && secondLength >= VECTOR_THRESHOLD) {
+            carry = VECTOR_KERNELS.add(first, second, secondLength, result);
+            i = secondLength;
+        }
 
         // add both numbers
-        for (int i = 0; i < longerOnlyStart; i++) {
+        for (; i < secondLength; i++) {
             // MaxInt is larger than 2 * 10^9 so no overflow
-            int digitSum = first.digits.get(i) + second.digits.get(i) + carry;
+            int digitSum = first[i] + second[i] + carry;
             carry = digitSum > MAX_DIGIT ? 1 : 0;
-            result.add(carry > 0 ? digitSum - MAX_DIGIT - 1 : digitSum);
+            result[i] = carry > 0 ? digitSum - BASE : digitSum;
         }
 
         // handle carrying and longer number
-        int i = longerOnlyStart;
+        for (; carry == 1 && i < firstLength; i++) {
+            int digitSum = first[i] + 1;
+            carry = digitSum > MAX_DIGIT ? 1 : 0;
+            result[i] = carry > 0 ? 0 : digitSum;
+        }
+        if (i < firstLength) {
+            System.arraycopy(first, i, result, i, firstLength - i);
+            i = firstLength;
+        }
         if (carry == 1) {
-            while (i < first.digits.size() && first.digits.get(i) == MAX_DIGIT) {
-                result.add(0);
-                i++;
-            }
-            if (i == first.digits.size()) {
-                result.add(1);
-            }
-            else {
-                result.add(i, first.digits.get(i) + 1);
-                i++;
-            }
+            result[i++] = 1;
         }
-        result.addAll(new ArrayList<Integer>(first.digits.subList(i, first.digits.size())));
-
-        return new BigInt(result, 1);
+        return i;
     }
 
-    private BigInt subtractPositives(BigInt value, BigInt subtract) {
-        int comparison = value.compareTo(subtract);
+    /*
+    long subtraction - sign * (|value| - |subtract|)
+     */
+    private static BigInt subtractPositives(BigInt value, BigInt subtract, int sign) {
+        int comparison = compareMagnitudes(value.digits, value.length, subtract.digits, subtract.length);
         // x - x == 0
         if (comparison == 0){
-            ArrayList<Integer> result = new ArrayList<>();
-            result.add(0);
-            return new BigInt(result, 1);
+            return ZERO;
         }
         // a - b == a - b
         else if (comparison > 0) {
-            return subtractSmaller(value, subtract);
+            return subtractSmaller(value, subtract, sign);
         }
         // a - b == -|b - a|
         else {
-            BigInt result = subtractSmaller(subtract, value);
-            result.sign = -1;
-            return result;
+            return subtractSmaller(subtract, value, -sign);
         }
     }
 
-    private BigInt subtractSmaller(BigInt value, BigInt subtract) {
-        ArrayList<Integer> result = new ArrayList<>();
+    private static BigInt subtractSmaller(BigInt value, BigInt subtract, int sign) {
+        int[] result = new int[value.length];
+        int resultLength = subtractMagnitudes(value.digits, value.length, subtract.digits, subtract.length, result);
+        return new BigInt(result, resultLength, sign);
+    }
+
+    /*
+    Writes value - subtract into 'result' (which must have room for 'valueLength'
+    digits) and returns the number of digits used, after removing leading zeros.
+    Requires value >= subtract.
+     */
+    private static int subtractMagnitudes(int[] value, int valueLength, int[] subtract, int subtractLength, int[] result) {
         int borrow = 0;
         int i = 0;
+        if (VECTOR_KERNELS != null && subtractLength >= VECTOR_THRESHOLD) {
+            borrow = VECTOR_KERNELS.subtract(value, subtract, subtractLength, result);
+            i = subtractLength;
+        }
 
-        // subtract shorter 'subtract.digits'
-        while (i < subtract.digits.size()) {
-            int digitSub = value.digits.get(i) - borrow - subtract.digits.get(i);
-            if (digitSub >= 0) {
-                result.add(digitSub);
-                borrow = 0;
-            }
-            else {
-                result.add(digitSub + BASE);
-                borrow = 1;
-            }
-            i++;
+        // subtract shorter 'subtract'
+        for (; i < subtractLength; i++) {
+            int digitSub = value[i] - borrow - subtract[i];
+            borrow = digitSub < 0 ? 1 : 0;
+            result[i] = digitSub + (borrow * BASE);
         }
 
         // handle borrow propagating and addition of 'value' higher digits
-        while (borrow == 1 && i < value.digits.size() && value.digits.get(i) == 0) {
-            result.add(MAX_DIGIT);
-            i++;
-        }
-        if (borrow == 1) {
-            int lastOperatedDigit = value.digits.get(i) - 1;
-            if (lastOperatedDigit > 0) {
-                result.add(lastOperatedDigit);
-            }
-            i++;
+        for (; borrow == 1 && i < valueLength; i++) {
+            int digitSub = value[i] - 1;
+            borrow = digitSub < 0 ? 1 : 0;
+            result[i] = digitSub + (borrow * BASE);
         }
-        if (i < value.digits.size()) {
-            result.addAll(new ArrayList<Integer>(value.digits.subList(i, value.digits.size())));
+        if (i < valueLength) {
+            System.arraycopy(value, i, result, i, valueLength - i);
         }
 
         // remove leading zeros
-        i = result.size() - 1;
-        while (i > 0 && result.get(i) == 0) {
-            result.remove(i);
-            i--;
+        return stripLeadingZeros(result, valueLength);
+    }
+
+    /*
+    Digit by digit addition and subtraction of two arrays of the same length, for a
+    vector of digits at a time (see VectorMagnitudes, under src/vector). Both write
+    the digits of the result into 'result' and return the carry (or borrow) out of them.
+     */
+    interface VectorKernels {
+        int add(int[] first, int[] second, int length, int[] result);
+
+        int subtract(int[] value, int[] subtract, int length, int[] result);
+    }
+
+    /*
+    The vectorized kernels are only used when the jdk.incubator.vector module is present (it
+    has to be added with --add-modules) and VectorMagnitudes was compiled, and can be turned
+    off with -Dbigint.vector=false.
+     */
+    private static VectorKernels loadVectorKernels() {
+        if (!Boolean.parseBoolean(System.getProperty("bigint.vector", "true")) ||
+                ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (VectorKernels)Class.forName("VectorMagnitudes").getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /*
+    Returns the number of used digits in the first 'length' cells of
+    'digits', ignoring leading zeros (but always keeping at least one digit).
+     */
+    static int stripLeadingZeros(int[] digits, int length) {
+        while (length > 1 && digits[length - 1] == 0) {
+            length--;
+        }
+        return length;
+    }
+
+    /*
+    The length of the digits in digits[offset, offset + length) without leading zeros - unlike
+    stripLeadingZeros, this is 0 for a range of zeros.
+     */
+    private static int significantLength(int[] digits, int offset, int length) {
+        while (length > 0 && digits[offset + length - 1] == 0) {
+            length--;
+        }
+        return length;
+    }
+
+    /*
+    Adds the digits value[valueOffset, valueOffset + valueLength) into 'result' from 'offset' on,
+    carrying as far as needed - 'result' must have room for the sum.
+     */
+    static void addInto(int[] value, int valueOffset, int valueLength, int[] result, int offset) {
+        int carry = 0;
+        int i = offset;
+        for (int j = 0; j < valueLength; j++, i++) {
+            int digitSum = result[i] + value[valueOffset + j] + carry; // < 2 * 10^9, no overflow
+            carry = digitSum > MAX_DIGIT ? 1 : 0;
+            result[i] = digitSum - carry * BASE;
+        }
+        for (; carry == 1; i++) {
+            int digitSum = result[i] + 1;
+            carry = digitSum > MAX_DIGIT ? 1 : 0;
+            result[i] = carry > 0 ? 0 : digitSum;
         }
+    }
 
-        return new BigInt(result, 1);
+    /*
+    Subtracts the digits value[valueOffset, valueOffset + valueLength) from 'result' from 'offset'
+    on, borrowing as far as needed - the digits of 'result' must make up the larger value.
+     */
+    static void subtractFrom(int[] value, int valueOffset, int valueLength, int[] result, int offset) {
+        int borrow = 0;
+        int i = offset;
+        for (int j = 0; j < valueLength; j++, i++) {
+            int difference = result[i] - value[valueOffset + j] - borrow;
+            borrow = difference < 0 ? 1 : 0;
+            result[i] = difference + borrow * BASE;
+        }
+        for (; borrow == 1; i++) {
+            int difference = result[i] - 1;
+            borrow = difference < 0 ? 1 : 0;
+            result[i] = difference + borrow * BASE;
+        }
     }
 
     /**
-     * Multiplication using karatsuba's method.
+     * Multiplication using the long multiplication, karatsuba's or Toom-Cook's
+     * method, depending on the length of the factors.
      * @param factor
      * @return this * factor
      */
     public BigInt multiply (BigInt factor) {
-        BigInt result = karatsuba(this, factor);
-        result.sign = this.sign == factor.sign ? 1 : -1;
-        return result;
+        if (this.compact != INFLATED && factor.compact != INFLATED) {
+            long product = this.compact * factor.compact;
+            // the 128 bit product fits in a long if its high half only extends the sign
+            if (Math.multiplyHigh(this.compact, factor.compact) == product >> 63) {
+                return valueOf(product);
+            }
+        }
+        if (factor == this) {
+            return square();
+        }
+        BigInt result = multiplyPositives(this, factor);
+        return signedResult(result.digits, result.length, this.sign == factor.sign ? 1 : -1);
+    }
+
+    /**
+     * Multiplication by an int, in a single pass over the digits of this.
+     * @param factor
+     * @return this * factor
+     */
+    public BigInt multiply(int factor) {
+        if (compact != INFLATED) {
+            long product = compact * factor;
+            if (Math.multiplyHigh(compact, factor) == product >> 63) {
+                return valueOf(product);
+            }
+        }
+        if (factor == 0) {
+            return ZERO;
+        }
+        int[] result = new int[length + 2];
+        int resultLength = multiplyMagnitudeByDigit(digits, length, Math.abs((long)factor), result);
+        return new BigInt(result, resultLength, factor < 0 ? -sign : sign);
+    }
+
+    /**
+     * Multiplication in parallel on the common ForkJoinPool - see multiplyParallel(BigInt, ForkJoinPool).
+     * @param factor
+     * @return this * factor
+     */
+    public BigInt multiplyParallel(BigInt factor) {
+        return multiplyParallel(factor, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Multiplication like 'multiply', where the independent sub-products of karatsuba's and
+     * Toom-Cook's methods (and the transforms of the NTT) are forked as tasks on 'pool'.
+     * Factors shorter than PARALLEL_THRESHOLD digits are multiplied sequentially. The
+     * algorithms and the order in which the partial results are combined are exactly those
+     * of 'multiply', so the result is always identical.
+     * @param factor
+     * @param pool The pool running the tasks
+     * @return this * factor
+     */
+    public BigInt multiplyParallel(BigInt factor, ForkJoinPool pool) {
+        BigInt result = pool.invoke(new MultiplyTask(this, factor));
+        return signedResult(result.digits, result.length, this.sign == factor.sign ? 1 : -1);
+    }
+
+    /*
+    A multiplication of magnitudes as a fork/join task - its sub-products are tasks as well.
+     */
+    private static class MultiplyTask extends RecursiveTask<BigInt> {
+        private static final long serialVersionUID = 1L;
+        private final BigInt first;
+        private final BigInt second;
+
+        MultiplyTask(BigInt first, BigInt second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        protected BigInt compute() {
+            return multiplyPositives(first, second, true);
+        }
+    }
+
+    /**
+     * Fused multiplication and addition - the product is accumulated right into the digits
+     * of the result, instead of being created as a BigInt of its own and then added.
+     * @param first
+     * @param second
+     * @param addend
+     * @return first * second + addend
+     */
+    public static BigInt multiplyAdd(BigInt first, BigInt second, BigInt addend) {
+        if (first.compact != INFLATED && second.compact != INFLATED && addend.compact != INFLATED) {
+            long product = first.compact * second.compact;
+            long sum = product + addend.compact;
+            if (Math.multiplyHigh(first.compact, second.compact) == product >> 63 &&
+                    ((product ^ sum) & (addend.compact ^ sum)) >= 0) {
+                return valueOf(sum);
+            }
+        }
+        MutableBigInt result = new MutableBigInt(addend, Math.max(addend.length, first.length + second.length) + 1);
+        return result.multiplyAdd(first, second).toBigInt();
+    }
+
+    /**
+     * The dot product of two arrays of BigInts - the sum of firsts[i] * seconds[i]. The products
+     * are accumulated in place into two sums (of the positive and of the negative products, so
+     * that neither ever has to be rescanned to flip its sign), without a BigInt per product.
+     * @param firsts
+     * @param seconds
+     * @return firsts[0] * seconds[0] + ... + firsts[n - 1] * seconds[n - 1]
+     * @throws IllegalArgumentException If the arrays have different lengths
+     */
+    public static BigInt dot(BigInt[] firsts, BigInt[] seconds) throws IllegalArgumentException {
+        checkDotLengths(firsts, seconds);
+        return dotRange(firsts, seconds, 0, firsts.length);
+    }
+
+    /**
+     * The dot product on the common ForkJoinPool - see dotParallel(BigInt[], BigInt[], ForkJoinPool).
+     * @param firsts
+     * @param seconds
+     * @return firsts[0] * seconds[0] + ... + firsts[n - 1] * seconds[n - 1]
+     * @throws IllegalArgumentException If the arrays have different lengths
+     */
+    public static BigInt dotParallel(BigInt[] firsts, BigInt[] seconds) throws IllegalArgumentException {
+        return dotParallel(firsts, seconds, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * The dot product like 'dot', where the terms are split into tasks of up to
+     * PARALLEL_DOT_THRESHOLD terms on 'pool', whose sums are then added up.
+     * @param firsts
+     * @param seconds
+     * @param pool The pool running the tasks
+     * @return firsts[0] * seconds[0] + ... + firsts[n - 1] * seconds[n - 1]
+     * @throws IllegalArgumentException If the arrays have different lengths
+     */
+    public static BigInt dotParallel(BigInt[] firsts, BigInt[] seconds, ForkJoinPool pool) throws IllegalArgumentException {
+        checkDotLengths(firsts, seconds);
+        return pool.invoke(new DotTask(firsts, seconds, 0, firsts.length));
+    }
+
+    private static void checkDotLengths(BigInt[] firsts, BigInt[] seconds) {
+        if (firsts.length != seconds.length) {
+            throw new IllegalArgumentException("Attempted BigInt dot product of arrays of different lengths " +
+                    firsts.length + " and " + seconds.length);
+        }
+    }
+
+    // the dot product of the terms in [from, to)
+    private static BigInt dotRange(BigInt[] firsts, BigInt[] seconds, int from, int to) {
+        MutableBigInt positives = new MutableBigInt();
+        MutableBigInt negatives = new MutableBigInt();
+        for (int i = from; i < to; i++) {
+            (firsts[i].sign == seconds[i].sign ? positives : negatives).multiplyAdd(firsts[i], seconds[i]);
+        }
+        return positives.add(negatives.toBigInt()).toBigInt();
+    }
+
+    /*
+    The dot product of a range of terms as a fork/join task - halved into two tasks down
+    to PARALLEL_DOT_THRESHOLD terms.
+     */
+    private static class DotTask extends RecursiveTask<BigInt> {
+        private static final long serialVersionUID = 1L;
+        private final BigInt[] firsts;
+        private final BigInt[] seconds;
+        private final int from;
+        private final int to;
+
+        DotTask(BigInt[] firsts, BigInt[] seconds, int from, int to) {
+            this.firsts = firsts;
+            this.seconds = seconds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BigInt compute() {
+            if (to - from <= Math.max(PARALLEL_DOT_THRESHOLD, 1)) {
+                return dotRange(firsts, seconds, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            DotTask high = new DotTask(firsts, seconds, middle, to);
+            high.fork();
+            BigInt low = new DotTask(firsts, seconds, from, middle).compute();
+            return low.plus(high.join());
+        }
+    }
+
+    /*
+     Sums and products of many values. A product folded from left to right multiplies an ever
+     growing value by short ones, so almost all of its multiplications are lopsided and none
+     of them gets to use the fast algorithms. A product tree multiplies the values in pairs,
+     then the products in pairs and so on - every level multiplies values of about the same
+     length, and the top levels (where nearly all the work is) are large balanced products.
+     The subtrees are independent, so they are also what the parallel versions fork as tasks.
+     A sum on the other hand is linear either way, so it is accumulated in place (as in 'dot').
+     */
+
+    /**
+     * The sum of a collection of BigInts, accumulated in place.
+     * @param values
+     * @return The sum of the values (0 if there are none)
+     */
+    public static BigInt sum(Collection<BigInt> values) {
+        BigInt[] array = values.toArray(new BigInt[0]);
+        return sumRange(array, 0, array.length);
+    }
+
+    /**
+     * The sum on the common ForkJoinPool - see sumParallel(Collection, ForkJoinPool).
+     * @param values
+     * @return The sum of the values (0 if there are none)
+     */
+    public static BigInt sumParallel(Collection<BigInt> values) {
+        return sumParallel(values, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * The sum like 'sum', in tasks of up to PARALLEL_REDUCE_THRESHOLD values on 'pool'.
+     * @param values
+     * @param pool The pool running the tasks
+     * @return The sum of the values (0 if there are none)
+     */
+    public static BigInt sumParallel(Collection<BigInt> values, ForkJoinPool pool) {
+        BigInt[] array = values.toArray(new BigInt[0]);
+        return pool.invoke(new ReduceTask(array, 0, array.length, false));
+    }
+
+    /**
+     * The product of a collection of BigInts, as a product tree.
+     * @param values
+     * @return The product of the values (1 if there are none)
+     */
+    public static BigInt product(Collection<BigInt> values) {
+        BigInt[] array = values.toArray(new BigInt[0]);
+        return productTree(array, 0, array.length);
+    }
+
+    /**
+     * The product on the common ForkJoinPool - see productParallel(Collection, ForkJoinPool).
+     * @param values
+     * @return The product of the values (1 if there are none)
+     */
+    public static BigInt productParallel(Collection<BigInt> values) {
+        return productParallel(values, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * The product like 'product', with the subtrees of more than PARALLEL_REDUCE_THRESHOLD
+     * values forked as tasks on 'pool', and the products of the top levels multiplied in parallel.
+     * @param values
+     * @param pool The pool running the tasks
+     * @return The product of the values (1 if there are none)
+     */
+    public static BigInt productParallel(Collection<BigInt> values, ForkJoinPool pool) {
+        BigInt[] array = values.toArray(new BigInt[0]);
+        return pool.invoke(new ReduceTask(array, 0, array.length, true));
+    }
+
+    /**
+     * A Collector of a stream of BigInts into their sum (see 'sum').
+     * @return The summing Collector
+     */
+    public static Collector<BigInt, ?, BigInt> summing() {
+        return Collector.of(MutableBigInt::new, MutableBigInt::add,
+                (first, second) -> first.add(second.toBigInt()), MutableBigInt::toBigInt);
+    }
+
+    /**
+     * A Collector of a stream of BigInts into their product (see 'product'). The values are
+     * collected first, and multiplied as a product tree at the end.
+     * @return The multiplying Collector
+     */
+    public static Collector<BigInt, ?, BigInt> multiplying() {
+        return Collector.of(ArrayList<BigInt>::new, List::add,
+                (first, second) -> {
+                    first.addAll(second);
+                    return first;
+                }, BigInt::product);
+    }
+
+    /**
+     * The factorial, as a product tree of the numbers up to n.
+     * @param n
+     * @return n!
+     * @throws ArithmeticException If n is negative
+     */
+    public static BigInt factorial(int n) throws ArithmeticException {
+        BigInt[] factors = factorialFactors(n);
+        return productTree(factors, 0, factors.length);
+    }
+
+    /**
+     * The factorial on the common ForkJoinPool - see factorialParallel(int, ForkJoinPool).
+     * @param n
+     * @return n!
+     * @throws ArithmeticException If n is negative
+     */
+    public static BigInt factorialParallel(int n) throws ArithmeticException {
+        return factorialParallel(n, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * The factorial like 'factorial', with the product tree run as in productParallel.
+     * @param n
+     * @param pool The pool running the tasks
+     * @return n!
+     * @throws ArithmeticException If n is negative
+     */
+    public static BigInt factorialParallel(int n, ForkJoinPool pool) throws ArithmeticException {
+        BigInt[] factors = factorialFactors(n);
+        return pool.invoke(new ReduceTask(factors, 0, factors.length, true));
+    }
+
+    /*
+    The leaves of the factorial's product tree - the numbers 2 to n, with runs of consecutive
+    numbers multiplied together as longs for as long as their product fits.
+     */
+    private static BigInt[] factorialFactors(int n) {
+        if (n < 0) {
+            throw new ArithmeticException("Attempted BigInt factorial of a negative number");
+        }
+        List<BigInt> factors = new ArrayList<>();
+        long factor = 1;
+        for (int i = 2; i <= n; i++) {
+            if (Math.multiplyHigh(factor, i) != 0 || factor * i < 0) {
+                factors.add(valueOf(factor));
+                factor = 1;
+            }
+            factor *= i;
+        }
+        factors.add(valueOf(factor));
+        return factors.toArray(new BigInt[0]);
+    }
+
+    // the sum of values[from, to)
+    private static BigInt sumRange(BigInt[] values, int from, int to) {
+        // as in 'dot', the positive and negative values are summed apart
+        MutableBigInt positives = new MutableBigInt();
+        MutableBigInt negatives = new MutableBigInt();
+        for (int i = from; i < to; i++) {
+            (values[i].sign > 0 ? positives : negatives).add(values[i]);
+        }
+        return positives.add(negatives.toBigInt()).toBigInt();
+    }
+
+    // the product of values[from, to), as a product tree
+    private static BigInt productTree(BigInt[] values, int from, int to) {
+        if (to - from <= 2) {
+            return to == from ? ONE : to - from == 1 ? values[from] : values[from].multiply(values[from + 1]);
+        }
+        int middle = (from + to) >>> 1;
+        return productTree(values, from, middle).multiply(productTree(values, middle, to));
+    }
+
+    /*
+    The sum or product of a range of values as a fork/join task - halved into two tasks down
+    to PARALLEL_REDUCE_THRESHOLD values. The two halves of a product are multiplied with the
+    parallel multiplication.
+     */
+    private static class ReduceTask extends RecursiveTask<BigInt> {
+        private static final long serialVersionUID = 1L;
+        private final BigInt[] values;
+        private final int from;
+        private final int to;
+        private final boolean product;
+
+        ReduceTask(BigInt[] values, int from, int to, boolean product) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.product = product;
+        }
+
+        @Override
+        protected BigInt compute() {
+            if (to - from <= Math.max(PARALLEL_REDUCE_THRESHOLD, 2)) {
+                return product ? productTree(values, from, to) : sumRange(values, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ReduceTask high = new ReduceTask(values, middle, to, product);
+            high.fork();
+            BigInt low = new ReduceTask(values, from, middle, product).compute();
+            BigInt highResult = high.join();
+            if (!product) {
+                return low.plus(highResult);
+            }
+            BigInt result = multiplyPositives(low, highResult, true);
+            return signedResult(result.digits, result.length, low.sign == highResult.sign ? 1 : -1);
+        }
+    }
+
+    /*
+    Adds |first| * |second| into 'result' (which must have room for the sum) - for MutableBigInt.
+    The digit products of short factors are accumulated right into 'result', like in
+    multiplyMagnitudes (with every row's carry rippling on into the digits above it), and longer
+    factors are multiplied with the faster algorithms and then added.
+     */
+    static void addProduct(BigInt first, BigInt second, int[] result) {
+        if (first.length >= KARATSUBA_THRESHOLD && second.length >= KARATSUBA_THRESHOLD) {
+            BigInt product = multiplyPositives(first, second);
+            addInto(product.digits, 0, product.length, result, 0);
+            return;
+        }
+        // the rows go over the shorter factor, so that there are fewer carries to ripple
+        if (first.length > second.length) {
+            BigInt temp = first;
+            first = second;
+            second = temp;
+        }
+        for (int i = 0; i < first.length; i++) {
+            long firstDigit = first.digits[i];
+            if (firstDigit == 0) {
+                continue;
+            }
+            long carry = 0;
+            for (int j = 0; j < second.length; j++) {
+                long digitResult = firstDigit * second.digits[j] + result[i + j] + carry; // < 10^18
+                result[i + j] = (int)(digitResult % BASE);
+                carry = digitResult / BASE;
+            }
+            for (int k = i + second.length; carry > 0; k++) {
+                long digitSum = result[k] + carry; // carry < BASE, so the next carry is at most 1
+                result[k] = (int)(digitSum % BASE);
+                carry = digitSum / BASE;
+            }
+        }
+    }
+
+    /**
+     * Releases the scratch arrays that the calling thread keeps for reuse by the multiplication,
+     * squaring and division algorithms (up to 4MB per thread by default - see bigint.scratchMaxRetained).
+     * Worth calling from threads that are done with BigInt arithmetic on long values, but live on.
+     */
+    public static void releaseScratch() {
+        Scratch.release();
+    }
+
+    /*
+    A per thread pool of scratch digit arrays, for the temporaries of the multiplication, squaring
+    and division algorithms (the digits of their results are never scratch). Temporaries are taken
+    from the pool of the running thread (zeroed up to the requested length) and given back once
+    they are no longer needed, so that after a warm up, repeated calls only allocate their results.
+    The arrays are pooled by their length, rounded up to a power of 2, with up to POOL_SIZE arrays
+    of every length of up to SCRATCH_MAX_LENGTH digits (longer arrays are left to the GC), and up
+    to SCRATCH_MAX_RETAINED digits in all - so a thread never keeps more than 4 * SCRATCH_MAX_RETAINED
+    bytes (4MB by default), and releaseScratch() drops what the calling thread keeps.
+    An array is always given back to the pool of the thread that took it.
+    The counters are global, and let tests and benchmarks check how many of the scratch arrays
+    taken had to be allocated.
+     */
+    static final class Scratch {
+        private static final int POOL_SIZE = 8;
+        private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+        private static final LongAdder TAKEN = new LongAdder();
+        private static final LongAdder ALLOCATED = new LongAdder();
+        // pools[i] holds arrays of length 2^i
+        private final int[][][] pools = new int[32][POOL_SIZE][];
+        private final int[] pooled = new int[32];
+        private long retained; // the digits of all the pooled arrays
+
+        static Scratch get() {
+            return SCRATCH.get();
+        }
+
+        // drops the pool of the running thread (a new one is created by its next get())
+        static void release() {
+            SCRATCH.remove();
+        }
+
+        long retained() {
+            return retained;
+        }
+
+        // the number of scratch arrays taken, and of those that were allocated, by all threads
+        static long taken() {
+            return TAKEN.sum();
+        }
+
+        static long allocated() {
+            return ALLOCATED.sum();
+        }
+
+        int[] take(int length) {
+            TAKEN.increment();
+            int pool = 32 - Integer.numberOfLeadingZeros(Math.max(length, 1) - 1); // ceil(log2(length))
+            if (pool < 32 && pooled[pool] > 0) {
+                int[] array = pools[pool][--pooled[pool]];
+                pools[pool][pooled[pool]] = null;
+                retained -= array.length;
+                Arrays.fill(array, 0, length, 0);
+                return array;
+            }
+            ALLOCATED.increment();
+            return new int[length <= SCRATCH_MAX_LENGTH ? 1 << pool : length];
+        }
+
+        void give(int[] array) {
+            int length = array.length;
+            if (length > SCRATCH_MAX_LENGTH || Integer.bitCount(length) != 1) {
+                return;
+            }
+            int pool = Integer.numberOfTrailingZeros(length);
+            if (pooled[pool] < POOL_SIZE && retained + length <= SCRATCH_MAX_RETAINED) {
+                pools[pool][pooled[pool]++] = array;
+                retained += length;
+            }
+        }
+    }
+
+    private static BigInt multiplyPositives(BigInt first, BigInt second) {
+        return multiplyPositives(first, second, false);
+    }
+
+    /*
+    Multiplication of magnitudes (signs are ignored, the result is positive), with the
+    algorithm that best fits the length of the factors. If 'parallel' is set, this must
+    run inside a ForkJoinPool.
+     */
+    private static BigInt multiplyPositives(BigInt first, BigInt second, boolean parallel) {
+        parallel = parallel && Math.min(first.length, second.length) >= PARALLEL_THRESHOLD;
+        if (first.length < KARATSUBA_THRESHOLD || second.length < KARATSUBA_THRESHOLD) {
+            return innerMultiply(first, second);
+        }
+        if (isUnbalanced(first.length, second.length)) {
+            return unbalancedMultiply(first, second, parallel);
+        }
+        if (isUnbalanced(second.length, first.length)) {
+            return unbalancedMultiply(second, first, parallel);
+        }
+        if (first.length < TOOM_COOK_THRESHOLD && second.length < TOOM_COOK_THRESHOLD) {
+            return karatsuba(first, second, parallel);
+        }
+        if (first.length >= NTT_THRESHOLD && second.length >= NTT_THRESHOLD &&
+                first.length + second.length <= NTT_MAX_LENGTH) {
+            return nttMultiply(first, second, parallel);
+        }
+        return toomCook3(first, second, parallel);
+    }
+
+    /*
+    Multiplication of magnitudes of very different lengths. Karatsuba's and Toom-Cook's
+    methods split both factors at the same point, picked by the longer factor, so the
+    short factor's high pieces are mostly zeros, and the recursion is wasted on them.
+    Instead, the longer factor ('first') is cut into blocks of the shorter factor's length,
+    every block is multiplied by the shorter factor as a balanced multiplication (with
+    whichever algorithm suits its length), and the products are added up at the blocks'
+    offsets - each product overlaps the next one by a block.
+     */
+    private static BigInt unbalancedMultiply(BigInt first, BigInt second, boolean parallel) {
+        int blockLength = second.length;
+        int blocks = (first.length + blockLength - 1) / blockLength;
+        BigInt[] firsts = new BigInt[blocks];
+        BigInt[] seconds = new BigInt[blocks];
+        for (int i = 0; i < blocks; i++) {
+            firsts[i] = digitRange(first, i * blockLength, (i + 1) * blockLength);
+            seconds[i] = second;
+        }
+        BigInt[] products = multiplyAll(firsts, seconds, parallel);
+        int[] result = new int[first.length + second.length];
+        for (int i = 0; i < blocks; i++) {
+            addInto(products[i].digits, 0, products[i].length, result, i * blockLength);
+        }
+        return new BigInt(result, stripLeadingZeros(result, result.length), 1);
+    }
+
+    // a block per factor and up can only shrink the pieces from a ratio of 2
+    private static boolean isUnbalanced(int longerLength, int shorterLength) {
+        return longerLength / Math.max(UNBALANCED_RATIO, 2) >= shorterLength;
+    }
+
+    /*
+    The products firsts[i] * seconds[i] of magnitudes. If 'parallel' is set, all but the
+    first are forked as tasks while the current thread computes the first.
+     */
+    private static BigInt[] multiplyAll(BigInt[] firsts, BigInt[] seconds, boolean parallel) {
+        BigInt[] products = new BigInt[firsts.length];
+        if (!parallel) {
+            for (int i = 0; i < firsts.length; i++) {
+                products[i] = multiplyPositives(firsts[i], seconds[i]);
+            }
+            return products;
+        }
+        MultiplyTask[] tasks = new MultiplyTask[firsts.length];
+        for (int i = 1; i < firsts.length; i++) {
+            tasks[i] = new MultiplyTask(firsts[i], seconds[i]);
+            tasks[i].fork();
+        }
+        products[0] = multiplyPositives(firsts[0], seconds[0], true);
+        for (int i = firsts.length - 1; i > 0; i--) {
+            products[i] = tasks[i].join();
+        }
+        return products;
     }
 
     /*
@@ -398,114 +1733,609 @@ public class BigInt implements Comparable<BigInt> {
     I decided to implement the faster version as well. However, this
     method also passed all the multiplication tests in BigIntTest class.
      */
-    private BigInt innerMultiply(BigInt first, BigInt second) {
-        // the per-digit multiplications will be added to result
-        BigInt result = ZERO.deepCopy();
-
+    private static BigInt innerMultiply(BigInt first, BigInt second) {
         // check if calculation can be shortened, and avoid creation
         // of leading zeros
-        if (first.compareTo(result) == 0 || second.compareTo(result) == 0) {
-            return result;
-        }
-
-        for (int i = 0; i < first.digits.size(); i++) {
-            // the digits of multiplication of digit i of 'first'
-            // with 'second' - it is rewritten every iteration hence the name 'tempList'
-            ArrayList<Integer> tempList = new ArrayList<Integer>();
-            int carry = 0; // multiplication digit overflow
-            int additionCarry; // overflow of carry + remainder
-            for (int j = 0; j < second.digits.size(); j++) {
-                long digitResult = (long)first.digits.get(i) * (long)second.digits.get(j);
-                if (digitResult < MAX_DIGIT) {
-                    additionCarry = digitResult + carry > MAX_DIGIT ? 1 : 0;
-                    tempList.add((int)digitResult + carry - (MAX_DIGIT * additionCarry));
-                    carry = additionCarry;
-                }
-                else {
-                    int digitRemainder = (int)(digitResult % (long)(BASE));
-                    additionCarry = digitRemainder + carry > MAX_DIGIT ? 1 : 0;
-                    tempList.add(digitRemainder + carry - (BASE * additionCarry));
-                    carry = (int)((digitResult - digitRemainder) / (BASE)) + additionCarry;
-                }
-            }
-            if (carry > 0) {
-                tempList.add(carry);
-            }
+        if (first.compareTo(ZERO) == 0 || second.compareTo(ZERO) == 0) {
+            return ZERO;
+        }
 
-            // shift this result by i spaces (reminder: i is current index of first)
-            ArrayList<Integer> shifter = new ArrayList<Integer>();
-            for (int k = 0; k < i; k++) {
-                shifter.add(0);
-            }
-            shifter.addAll(tempList);
-            tempList = shifter;
+        int[] result = new int[first.length + second.length];
+        multiplyMagnitudes(first.digits, 0, first.length, second.digits, 0, second.length, result, 0);
+        return new BigInt(result, stripLeadingZeros(result, result.length), 1);
+    }
 
-            BigInt temp = new BigInt(tempList, 1);
-            result = result.plus(temp);
+    /*
+    Writes the product of the digits first[firstOffset, firstOffset + firstLength) and
+    second[secondOffset, secondOffset + secondLength) into 'result' from 'offset' on, where
+    it must be zeroed for firstLength + secondLength digits. The per-digit products are
+    accumulated directly in place, row by row (reminder: row i is shifted by i digits).
+     */
+    private static void multiplyMagnitudes(int[] first, int firstOffset, int firstLength,
+                                           int[] second, int secondOffset, int secondLength, int[] result, int offset) {
+        for (int i = 0; i < firstLength; i++) {
+            long firstDigit = first[firstOffset + i];
+            if (firstDigit == 0) {
+                continue;
+            }
+            // (10^9 - 1)^2 + 2 * (10^9 - 1) < 10^18, well within a long
+            long carry = 0;
+            int row = offset + i;
+            for (int j = 0; j < secondLength; j++) {
+                long digitResult = firstDigit * second[secondOffset + j] + result[row + j] + carry;
+                result[row + j] = (int)(digitResult % BASE);
+                carry = digitResult / BASE;
+            }
+            result[row + secondLength] = (int)carry;
         }
-        return result;
     }
 
     /*
     karatsuba's multiplication - https://en.wikipedia.org/wiki/Karatsuba_algorithm
+    With first == x1 * BASE^shift + x0 and second == y1 * BASE^shift + y0, the product is
+    z2 * BASE^(2 * shift) + z1 * BASE^shift + z0, where z2 == x1 * y1, z0 == x0 * y0 and
+    z1 == (x1 + x0) * (y1 + y0) - z2 - z0 - three multiplications of half the length.
+    Sequentially this is done by karatsubaMagnitudes, and in parallel with the
+    sub-products as tasks.
      */
-    private BigInt karatsuba(BigInt first, BigInt second) {
+    private static BigInt karatsuba(BigInt first, BigInt second, boolean parallel) {
         if (first.compareTo(ZERO) == 0 || second.compareTo(ZERO) == 0) {
-            return ZERO.deepCopy();
+            return ZERO;
         }
 
         // make sure first is longer
-        if (first.compareTo(second) < 0) {
+        if (first.length < second.length) {
             BigInt temp = first;
             first = second;
             second = temp;
         }
 
-        // I don't know if this is actually faster than waiting for
-        // 2 digits, but at least now I look smart
-        if (first.digits.size() <= 3) {
+        // the split below needs at least 4 digits (and shorter values are
+        // multiplied faster with the long multiplication anyway)
+        if (first.length < Math.max(KARATSUBA_THRESHOLD, 4)) {
             return innerMultiply(first, second);
         }
+        if (!parallel) {
+            int[] result = new int[first.length + second.length];
+            karatsubaMagnitudes(first.digits, 0, first.length, second.digits, 0, second.length, result, 0, Scratch.get());
+            return new BigInt(result, stripLeadingZeros(result, result.length), 1);
+        }
 
-        // split integer digits - the split can create leading
-        // zeros in the less significant portion hence the
-        // 'dropLeadingZeros' loops
-        int shift = first.digits.size() / 2 + 1;
-        BigInt x1 = new BigInt(new ArrayList<Integer>(first.digits.subList(shift, first.digits.size())), 1);
-        int dropLeadingZeros = shift;
-        while (dropLeadingZeros > 1 && first.digits.get(dropLeadingZeros - 1) == 0) dropLeadingZeros--;
-        BigInt x0 = new BigInt(new ArrayList<Integer>(first.digits.subList(0, dropLeadingZeros)), 1);
+        // split integer digits - the lower halves are prefixes of the factors, so they
+        // share their digits, but the split can create leading zeros in them hence the
+        // 'stripLeadingZeros' calls
+        int shift = first.length / 2 + 1;
+        BigInt x1 = new BigInt(Arrays.copyOfRange(first.digits, shift, first.length), first.length - shift, 1);
+        BigInt x0 = new BigInt(first.digits, stripLeadingZeros(first.digits, shift), 1);
         BigInt y1;
-        if (shift < second.digits.size()) {
-            y1 = new BigInt(new ArrayList<Integer>(second.digits.subList(shift, second.digits.size())), 1);
+        if (shift < second.length) {
+            y1 = new BigInt(Arrays.copyOfRange(second.digits, shift, second.length), second.length - shift, 1);
         }
         else {
-            y1 = ZERO.deepCopy();
+            y1 = ZERO;
+        }
+        BigInt y0 = new BigInt(second.digits, stripLeadingZeros(second.digits, Math.min(shift, second.length)), 1);
+
+        BigInt[] products = multiplyAll(new BigInt[] { x1.plus(x0), x1, x0 },
+                new BigInt[] { y1.plus(y0), y1, y0 }, parallel);
+        BigInt z2 = products[1];
+        BigInt z0 = products[2];
+
+        // z0 + z1 * BASE^shift + z2 * BASE^(2 * shift), where z1 == products[0] - z2 - z0
+        MutableBigInt result = new MutableBigInt(z0, first.length + second.length + 2);
+        result.add(z2, 2 * shift).add(products[0], shift).subtract(z2, shift).subtract(z0, shift);
+        return result.toBigInt();
+    }
+
+    /*
+    karatsuba's multiplication of the digits first[firstOffset, firstOffset + firstLength)
+    and second[secondOffset, secondOffset + secondLength), written into 'result' from
+    'offset' on (where it must be zeroed for firstLength + secondLength digits).
+    The halves are never copied - they are just narrower ranges of the same arrays. z0 and
+    z2 are written by the recursive calls right to their places in 'result' (z0 is shorter
+    than 2 * shift digits, so they don't overlap), and z1 is added in at 'shift' digits.
+    That leaves only x1 + x0, y1 + y0 and z1 as temporaries - which add up to the length
+    of the product, so the memory traffic of every level is linear - and they are taken
+    from (and given back to) 'scratch'.
+     */
+    private static void karatsubaMagnitudes(int[] first, int firstOffset, int firstLength, int[] second,
+                                            int secondOffset, int secondLength, int[] result, int offset, Scratch scratch) {
+        firstLength = significantLength(first, firstOffset, firstLength);
+        secondLength = significantLength(second, secondOffset, secondLength);
+        // make sure first is longer
+        if (firstLength < secondLength) {
+            int[] temp = first;
+            first = second;
+            second = temp;
+            int tempOffset = firstOffset;
+            firstOffset = secondOffset;
+            secondOffset = tempOffset;
+            int tempLength = firstLength;
+            firstLength = secondLength;
+            secondLength = tempLength;
+        }
+        if (secondLength == 0) {
+            return;
+        }
+        if (secondLength < KARATSUBA_THRESHOLD || firstLength < Math.max(KARATSUBA_THRESHOLD, 4)) {
+            multiplyMagnitudes(first, firstOffset, firstLength, second, secondOffset, secondLength, result, offset);
+            return;
+        }
+        if (isUnbalanced(firstLength, secondLength)) {
+            // in blocks of secondLength digits, like unbalancedMultiply - the first block's product
+            // goes right into the zeroed result, and the rest are added over their overlap
+            karatsubaMagnitudes(first, firstOffset, secondLength, second, secondOffset, secondLength,
+                    result, offset, scratch);
+            int[] product = scratch.take(2 * secondLength);
+            for (int block = secondLength; block < firstLength; block += secondLength) {
+                int blockLength = Math.min(secondLength, firstLength - block);
+                Arrays.fill(product, 0, blockLength + secondLength, 0);
+                karatsubaMagnitudes(first, firstOffset + block, blockLength, second, secondOffset, secondLength,
+                        product, 0, scratch);
+                addInto(product, 0, significantLength(product, 0, blockLength + secondLength), result, offset + block);
+            }
+            scratch.give(product);
+            return;
+        }
+
+        int shift = firstLength / 2 + 1;
+        int x1Length = firstLength - shift;
+        int y0Length = Math.min(shift, secondLength);
+        int y1Length = secondLength - y0Length;
+
+        // z0 and z2
+        karatsubaMagnitudes(first, firstOffset, shift, second, secondOffset, y0Length, result, offset, scratch);
+        karatsubaMagnitudes(first, firstOffset + shift, x1Length, second, secondOffset + shift, y1Length,
+                result, offset + 2 * shift, scratch);
+
+        // (x1 + x0) * (y1 + y0) - the halves are at most 'shift' digits long
+        int[] firstSum = scratch.take(shift + 1);
+        System.arraycopy(first, firstOffset, firstSum, 0, shift);
+        addInto(first, firstOffset + shift, x1Length, firstSum, 0);
+        int firstSumLength = significantLength(firstSum, 0, shift + 1);
+        int[] secondSum = scratch.take(y0Length + 1);
+        System.arraycopy(second, secondOffset, secondSum, 0, y0Length);
+        addInto(second, secondOffset + shift, y1Length, secondSum, 0);
+        int secondSumLength = significantLength(secondSum, 0, y0Length + 1);
+        int z1Length = firstSumLength + secondSumLength;
+        int[] z1 = scratch.take(z1Length);
+        karatsubaMagnitudes(firstSum, 0, firstSumLength, secondSum, 0, secondSumLength, z1, 0, scratch);
+
+        // z1 == (x1 + x0) * (y1 + y0) - z0 - z2, added at 'shift' digits
+        subtractFrom(result, offset, significantLength(result, offset, shift + y0Length), z1, 0);
+        if (y1Length > 0) {
+            subtractFrom(result, offset + 2 * shift, significantLength(result, offset + 2 * shift, x1Length + y1Length), z1, 0);
+        }
+        addInto(z1, 0, significantLength(z1, 0, z1Length), result, offset + shift);
+        scratch.give(z1);
+        scratch.give(secondSum);
+        scratch.give(firstSum);
+    }
+
+    /*
+    Toom-Cook's 3-way multiplication - https://en.wikipedia.org/wiki/Toom%E2%80%93Cook_multiplication
+    Both factors are cut into 3 pieces of k digits, as the coefficients of the polynomials
+    p(x) = p2 * x^2 + p1 * x + p0 and q(x) (so that first == p(BASE^k) and second == q(BASE^k)).
+    The product r(x) = p(x) * q(x) is a polynomial of degree 4, so it is determined by its
+    values at 5 points - 0, 1, -1, 2 and infinity (the product of the leading coefficients).
+    These are 5 multiplications of (about) k digits, instead of the 9 multiplications of the
+    long method. The coefficients of r(x) are then interpolated back from the 5 values, with the
+    sequence of additions and exact divisions by 2 and 3 from Marco Bodrato's "Towards Optimal
+    Toom-Cook Multiplication for Univariate and Multivariate Polynomials in Characteristic 2 and 0".
+    Some of the intermediate values are negative, so the signed plus/minus are used.
+     */
+    private static BigInt toomCook3(BigInt first, BigInt second, boolean parallel) {
+        // the pieces (and the evaluated values) are only shorter than the factors from 3 digits on
+        if (Math.max(first.length, second.length) < 3) {
+            return karatsuba(first, second, parallel);
+        }
+        int k = (Math.max(first.length, second.length) + 2) / 3;
+
+        BigInt p0 = lowDigits(first, k);
+        BigInt p1 = digitRange(first, k, 2 * k);
+        BigInt p2 = highDigits(first, 2 * k);
+        BigInt q0 = lowDigits(second, k);
+        BigInt q1 = digitRange(second, k, 2 * k);
+        BigInt q2 = highDigits(second, 2 * k);
+
+        // evaluation
+        BigInt pAtOne = p2.plus(p0).plus(p1);
+        BigInt qAtOne = q2.plus(q0).plus(q1);
+        BigInt pAtMinusOne = p2.plus(p0).minus(p1);
+        BigInt qAtMinusOne = q2.plus(q0).minus(q1);
+        BigInt pAtTwo = pAtOne.plus(p2);
+        pAtTwo = pAtTwo.plus(pAtTwo).minus(p0);
+        BigInt qAtTwo = qAtOne.plus(q2);
+        qAtTwo = qAtTwo.plus(qAtTwo).minus(q0);
+        BigInt[] products = multiplyAll(new BigInt[] { pAtTwo, p0, pAtOne, pAtMinusOne, p2 },
+                new BigInt[] { qAtTwo, q0, qAtOne, qAtMinusOne, q2 }, parallel);
+        BigInt r2 = products[0];
+        BigInt r0 = products[1];
+        BigInt r1 = products[2];
+        BigInt rMinus1 = signedResult(products[3].digits, products[3].length, pAtMinusOne.sign * qAtMinusOne.sign);
+        BigInt rInf = products[4];
+
+        return toomCook3Interpolate(r0, r1, rMinus1, r2, rInf, k);
+    }
+
+    /*
+    Toom-Cook's interpolation of r(BASE^k) from the values of r at 0, 1, -1, 2 and infinity.
+     */
+    private static BigInt toomCook3Interpolate(BigInt r0, BigInt r1, BigInt rMinus1, BigInt r2, BigInt rInf, int k) {
+        // the divisions are exact
+        BigInt t3 = r2.minus(rMinus1).divide(3);
+        BigInt t1 = r1.minus(rMinus1).divide(2);
+        BigInt t2 = r1.minus(r0);
+        t3 = t3.minus(t2).divide(2);
+        t2 = t2.minus(t1).minus(rInf);
+        t3 = t3.minus(rInf.plus(rInf));
+        t1 = t1.minus(t3);
+
+        // r(BASE^k) == rInf * BASE^4k + t3 * BASE^3k + t2 * BASE^2k + t1 * BASE^k + r0
+        MutableBigInt result = new MutableBigInt(r0, 4 * k + rInf.length + 2);
+        result.add(rInf, 4 * k).add(t3, 3 * k).add(t2, 2 * k).add(t1, k);
+        return result.toBigInt();
+    }
+
+    /**
+     * Squaring - faster than multiply(this), since the square's symmetry lets every
+     * algorithm skip about half of the work of a general multiplication.
+     * @return this * this
+     */
+    public BigInt square() {
+        if (compact != INFLATED && Math.multiplyHigh(compact, compact) == 0 && compact * compact >= 0) {
+            return valueOf(compact * compact);
         }
-        dropLeadingZeros = Math.min(shift, second.digits.size());
-        while (dropLeadingZeros > 1 && second.digits.get(dropLeadingZeros - 1) == 0) dropLeadingZeros--;
-        BigInt y0 = new BigInt(new ArrayList<Integer>(second.digits.subList(0, Math.min(dropLeadingZeros, second.digits.size()))), 1);
+        return squarePositive(this);
+    }
+
+    /**
+     * Exponentiation by squaring - the bits of the exponent are scanned from the most
+     * significant, squaring the result for every bit and multiplying it by this for every
+     * set bit. That is O(log(exponent)) squarings, the last (and largest) of which dominate.
+     * @param exponent
+     * @return this ^ exponent (where 0 ^ 0 == 1)
+     * @throws ArithmeticException If exponent is negative
+     */
+    public BigInt pow(int exponent) throws ArithmeticException {
+        if (exponent < 0) {
+            throw new ArithmeticException("Attempted to raise a BigInt to a negative power");
+        }
+        if (exponent == 0) {
+            return ONE;
+        }
+        BigInt result = new BigInt(this.digits, this.length, 1);
+        for (int bit = Integer.highestOneBit(exponent) >> 1; bit > 0; bit >>= 1) {
+            result = squarePositive(result);
+            if ((exponent & bit) != 0) {
+                result = multiplyPositives(result, this);
+            }
+        }
+        return signedResult(result.digits, result.length, (exponent & 1) == 1 ? this.sign : 1);
+    }
+
+    /*
+    Squaring of the magnitude (the result is positive), with the algorithm that best
+    fits the length of the value.
+     */
+    private static BigInt squarePositive(BigInt value) {
+        // karatsuba's split only makes the halves shorter from 4 digits on
+        if (value.length < Math.max(KARATSUBA_SQUARE_THRESHOLD, 4)) {
+            int[] result = new int[2 * value.length];
+            squareMagnitude(value.digits, 0, value.length, result, 0);
+            return new BigInt(result, stripLeadingZeros(result, result.length), 1);
+        }
+        if (value.length < TOOM_COOK_SQUARE_THRESHOLD) {
+            return karatsubaSquare(value);
+        }
+        if (value.length >= NTT_THRESHOLD && 2 * value.length <= NTT_MAX_LENGTH) {
+            // the NTT transforms the value only once when both factors are the same
+            return nttMultiply(value, value, false);
+        }
+        return toomCook3Square(value);
+    }
 
-        BigInt z2 = karatsuba(x1, y1);
-        BigInt z0 = karatsuba(x0, y0);
-        BigInt z1 = karatsuba(x1.plus(x0), y1.plus(y0)).minus(z2).minus(z0);
+    /*
+    Writes the square of the digits value[valueOffset, valueOffset + length) into 'result' from
+    'offset' on (where it must be zeroed for 2 * length digits). Every product value[i] * value[j]
+    with i != j appears twice in the square, so only the products with i < j are accumulated,
+    the sum is doubled, and then the squares of the digits (the 'diagonal') are added.
+     */
+    private static void squareMagnitude(int[] value, int valueOffset, int length, int[] result, int offset) {
+        for (int i = 0; i < length; i++) {
+            long digit = value[valueOffset + i];
+            if (digit == 0) {
+                continue;
+            }
+            long carry = 0;
+            int row = offset + i;
+            for (int j = i + 1; j < length; j++) {
+                long digitResult = digit * value[valueOffset + j] + result[row + j] + carry;
+                result[row + j] = (int)(digitResult % BASE);
+                carry = digitResult / BASE;
+            }
+            result[row + length] = (int)carry;
+        }
+
+        // double
+        int doubleCarry = 0;
+        for (int i = offset; i < offset + 2 * length; i++) {
+            int doubled = 2 * result[i] + doubleCarry; // < 2 * 10^9, no overflow
+            doubleCarry = doubled > MAX_DIGIT ? 1 : 0;
+            result[i] = doubled - (doubleCarry * BASE);
+        }
+
+        // add the diagonal
+        long carry = 0;
+        for (int i = 0; i < length; i++) {
+            long digit = value[valueOffset + i];
+            int low = offset + 2 * i;
+            long square = digit * digit + result[low] + carry;
+            result[low] = (int)(square % BASE);
+            long next = square / BASE + result[low + 1];
+            result[low + 1] = (int)(next % BASE);
+            carry = next / BASE;
+        }
+    }
+
+    /*
+    karatsuba's squaring - with value == x1 * BASE^shift + x0,
+    value^2 == x1^2 * BASE^(2 * shift) + ((x1 + x0)^2 - x1^2 - x0^2) * BASE^shift + x0^2.
+     */
+    private static BigInt karatsubaSquare(BigInt value) {
+        int[] result = new int[2 * value.length];
+        karatsubaSquareMagnitude(value.digits, 0, value.length, result, 0, Scratch.get());
+        return new BigInt(result, stripLeadingZeros(result, result.length), 1);
+    }
+
+    /*
+    karatsuba's squaring of the digits value[valueOffset, valueOffset + length), written into
+    'result' from 'offset' on (where it must be zeroed for 2 * length digits) - with the halves
+    read in place, the squares written to their places and the temporaries taken from
+    'scratch', like karatsubaMagnitudes.
+     */
+    private static void karatsubaSquareMagnitude(int[] value, int valueOffset, int length, int[] result, int offset,
+                                                 Scratch scratch) {
+        length = significantLength(value, valueOffset, length);
+        if (length == 0) {
+            return;
+        }
+        // karatsuba's split only makes the halves shorter from 4 digits on
+        if (length < Math.max(KARATSUBA_SQUARE_THRESHOLD, 4)) {
+            squareMagnitude(value, valueOffset, length, result, offset);
+            return;
+        }
+        int shift = length / 2 + 1;
+        int highLength = length - shift;
+
+        // x0^2 and x1^2
+        karatsubaSquareMagnitude(value, valueOffset, shift, result, offset, scratch);
+        karatsubaSquareMagnitude(value, valueOffset + shift, highLength, result, offset + 2 * shift, scratch);
+
+        // (x1 + x0)^2
+        int[] sum = scratch.take(shift + 1);
+        System.arraycopy(value, valueOffset, sum, 0, shift);
+        addInto(value, valueOffset + shift, highLength, sum, 0);
+        int sumLength = significantLength(sum, 0, shift + 1);
+        int[] z1 = scratch.take(2 * sumLength);
+        karatsubaSquareMagnitude(sum, 0, sumLength, z1, 0, scratch);
+
+        // z1 == (x1 + x0)^2 - x0^2 - x1^2, added at 'shift' digits
+        subtractFrom(result, offset, significantLength(result, offset, 2 * shift), z1, 0);
+        subtractFrom(result, offset + 2 * shift, significantLength(result, offset + 2 * shift, 2 * highLength), z1, 0);
+        addInto(z1, 0, significantLength(z1, 0, 2 * sumLength), result, offset + shift);
+        scratch.give(z1);
+        scratch.give(sum);
+    }
+
+    /*
+    Toom-Cook's 3-way squaring - the same as toomCook3 with both factors equal, so the
+    values at the 5 points are squares (and the value at -1 is positive).
+     */
+    private static BigInt toomCook3Square(BigInt value) {
+        int k = (value.length + 2) / 3;
+
+        BigInt p0 = lowDigits(value, k);
+        BigInt p1 = digitRange(value, k, 2 * k);
+        BigInt p2 = highDigits(value, 2 * k);
+
+        BigInt pAtOne = p2.plus(p0).plus(p1);
+        BigInt pAtMinusOne = p2.plus(p0).minus(p1);
+        BigInt pAtTwo = pAtOne.plus(p2);
+        pAtTwo = pAtTwo.plus(pAtTwo).minus(p0);
+
+        BigInt r0 = squarePositive(p0);
+        BigInt r1 = squarePositive(pAtOne);
+        BigInt rMinus1 = squarePositive(pAtMinusOne);
+        BigInt r2 = squarePositive(pAtTwo);
+        BigInt rInf = squarePositive(p2);
+
+        return toomCook3Interpolate(r0, r1, rMinus1, r2, rInf, k);
+    }
+
+    /*
+    Multiplication with the number theoretic transform - https://en.wikipedia.org/wiki/Sch%C3%B6nhage%E2%80%93Strassen_algorithm
+    (the idea, not the exact algorithm). The digits of the factors are the coefficients of
+    polynomials, and the product is their convolution: result[k] = sum(first[i] * second[k - i]).
+    The convolution is computed as a pointwise product between the transforms of the factors,
+    which takes O(n * log(n)), and then the result is carried over into digits.
+    The transform is done in modular arithmetic (instead of the floating point arithmetic of an
+    FFT), so it is exact - but then the convolution values are only known modulo the prime. Each
+    of them is smaller than min(length) * BASE^2 < 2^86, so the convolution is computed modulo 3
+    primes (with a product of about 2^86) and the values are recovered with the Chinese remainder
+    theorem. The primes are of the form c * 2^k + 1, which allows transforms of up to 2^k values -
+    the smallest k of the 3 limits the length of the product to NTT_MAX_LENGTH digits.
+     */
+    private static final int[] NTT_PRIMES = { 998244353, 167772161, 469762049 }; // 119 * 2^23 + 1, 5 * 2^25 + 1, 7 * 2^26 + 1
+    private static final int NTT_PRIMITIVE_ROOT = 3; // a generator of the multiplicative group of all 3 primes
+    private static final int NTT_MAX_LENGTH = 1 << 23;
+
+    private static BigInt nttMultiply(BigInt first, BigInt second, boolean parallel) {
+        int resultLength = first.length + second.length;
+        int size = Integer.highestOneBit(resultLength - 1) << 1;
+
+        // the convolutions modulo the different primes are independent. They are computed into
+        // scratch arrays of this thread (even when other threads compute them), so that they go
+        // back to the pool they came from
+        Scratch scratch = Scratch.get();
+        int[][] convolutions = new int[NTT_PRIMES.length][];
+        for (int i = 0; i < NTT_PRIMES.length; i++) {
+            convolutions[i] = scratch.take(size);
+        }
+        if (parallel) {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < NTT_PRIMES.length; i++) {
+                int[] convolution = convolutions[i];
+                int prime = NTT_PRIMES[i];
+                tasks.add(ForkJoinTask.adapt(() -> nttConvolution(first, second, size, prime, convolution)));
+            }
+            ForkJoinTask.invokeAll(tasks);
+        }
+        else {
+            for (int i = 0; i < NTT_PRIMES.length; i++) {
+                nttConvolution(first, second, size, NTT_PRIMES[i], convolutions[i]);
+            }
+        }
+
+        // Chinese remainder theorem (Garner's algorithm) - the convolution value is
+        // x1 + m1 * x2 + m1 * m2 * x3 where x1 < m1, x2 < m2 and x3 < m3
+        long m1 = NTT_PRIMES[0];
+        long m2 = NTT_PRIMES[1];
+        long m3 = NTT_PRIMES[2];
+        long m1InverseModM2 = modPow(m1 % m2, m2 - 2, m2);
+        long m1m2InverseModM3 = modPow(m1 * m2 % m3, m3 - 2, m3);
+        int[] result = new int[resultLength];
+        long carry = 0;
+        for (int i = 0; i < resultLength; i++) {
+            long x1 = convolutions[0][i];
+            long x2 = (convolutions[1][i] - x1 % m2 + m2) % m2 * m1InverseModM2 % m2;
+            long x3 = (convolutions[2][i] - (x1 + m1 * x2) % m3 + m3) % m3 * m1m2InverseModM3 % m3;
+            // value == x1 + m1 * (x2 + m2 * x3), where x2 + m2 * x3 < 2^57 is split in base 10^9
+            // so that all the partial products fit in a long
+            long high = x2 + m2 * x3;
+            long current = carry + x1 + m1 * (high % BASE);
+            result[i] = (int)(current % BASE);
+            carry = current / BASE + m1 * (high / BASE);
+        }
+        for (int[] convolution : convolutions) {
+            scratch.give(convolution);
+        }
+        return new BigInt(result, stripLeadingZeros(result, resultLength), 1);
+    }
+
+    /*
+    The convolution of the digits of first and second modulo 'prime', with a transform of 'size'
+    values (a power of 2 that fits the whole product), into the first 'size' values of 'firstValues'
+    (which are zero). The other temporaries are scratch arrays of the running thread.
+     */
+    private static void nttConvolution(BigInt first, BigInt second, int size, int prime, int[] firstValues) {
+        Scratch scratch = Scratch.get();
+        int[] roots = nttRoots(size, prime, scratch);
+        for (int i = 0; i < first.length; i++) {
+            firstValues[i] = first.digits[i] % prime;
+        }
+        ntt(firstValues, size, roots, prime);
+        int[] secondValues = firstValues;
+        if (second != first) {
+            secondValues = scratch.take(size);
+            for (int i = 0; i < second.length; i++) {
+                secondValues[i] = second.digits[i] % prime;
+            }
+            ntt(secondValues, size, roots, prime);
+        }
+        for (int i = 0; i < size; i++) {
+            firstValues[i] = (int)((long)firstValues[i] * secondValues[i] % prime);
+        }
+        if (secondValues != firstValues) {
+            scratch.give(secondValues);
+        }
+
+        // the inverse transform is the transform with the inverse root (which reverses
+        // the order of values 1..size-1), divided by size
+        ntt(firstValues, size, roots, prime);
+        scratch.give(roots);
+        for (int i = 1, j = size - 1; i < j; i++, j--) {
+            int temp = firstValues[i];
+            firstValues[i] = firstValues[j];
+            firstValues[j] = temp;
+        }
+        long sizeInverse = modPow(size, prime - 2, prime);
+        for (int i = 0; i < size; i++) {
+            firstValues[i] = (int)(firstValues[i] * sizeInverse % prime);
+        }
+    }
+
+    /*
+    The powers 0..size/2-1 of a primitive 'size'th root of unity modulo 'prime', in a scratch array.
+     */
+    private static int[] nttRoots(int size, int prime, Scratch scratch) {
+        long root = modPow(NTT_PRIMITIVE_ROOT, (prime - 1) / size, prime);
+        int rootCount = Math.max(size / 2, 1);
+        int[] roots = scratch.take(rootCount);
+        long power = 1;
+        for (int i = 0; i < rootCount; i++) {
+            roots[i] = (int)power;
+            power = power * root % prime;
+        }
+        return roots;
+    }
 
-        // shift z1 and z2 by 'shift' and 2 * 'shift' accordingly
-        ArrayList<Integer> shifterZ1 = new ArrayList<Integer>();
-        ArrayList<Integer> shifterZ2 = new ArrayList<Integer>();
-        for (int i = 0; i < shift; i++) {
-            shifterZ1.add(0);
+    /*
+    In-place iterative radix-2 transform (Cooley-Tukey) of the first 'size' values: the values
+    are put in bit-reversed order, and then combined in butterflies of growing length.
+     */
+    private static void ntt(int[] values, int size, int[] roots, int prime) {
+        for (int i = 1, j = 0; i < size; i++) {
+            int bit = size >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j |= bit;
+            if (i < j) {
+                int temp = values[i];
+                values[i] = values[j];
+                values[j] = temp;
+            }
         }
-        if (z2.compareTo(new BigInt("0")) > 0) { // compare to avoid creating leading zeros
-            shifterZ2 = new ArrayList<Integer>(shifterZ1.subList(0, shifterZ1.size()));
-            shifterZ2.addAll(shifterZ1);
+        for (int length = 2; length <= size; length <<= 1) {
+            int half = length >> 1;
+            int rootStep = size / length;
+            for (int start = 0; start < size; start += length) {
+                for (int j = 0; j < half; j++) {
+                    int u = values[start + j];
+                    int v = (int)((long)values[start + j + half] * roots[j * rootStep] % prime);
+                    int sum = u + v; // both below 2^30, no overflow
+                    values[start + j] = sum >= prime ? sum - prime : sum;
+                    int difference = u - v;
+                    values[start + j + half] = difference < 0 ? difference + prime : difference;
+                }
+            }
+        }
+    }
+
+    private static long modPow(long base, long exponent, long modulus) {
+        long result = 1;
+        base %= modulus;
+        while (exponent > 0) {
+            if ((exponent & 1) == 1) {
+                result = result * base % modulus;
+            }
+            base = base * base % modulus;
+            exponent >>= 1;
         }
-        shifterZ1.addAll(z1.digits);
-        z1.digits = shifterZ1;
-        shifterZ2.addAll(z2.digits);
-        z2.digits = shifterZ2;
+        return result;
+    }
 
-        return z0.plus(z1).plus(z2);
+    /*
+    Multiplication by BASE ^ shift.
+     */
+    private static BigInt shiftDigits(BigInt value, int shift) {
+        if (value.length == 1 && value.digits[0] == 0) { // avoid creating leading zeros
+            return value;
+        }
+        int[] shifted = new int[value.length + shift];
+        System.arraycopy(value.digits, 0, shifted, shift, value.length);
+        return new BigInt(shifted, shifted.length, value.sign);
     }
 
     /**
@@ -515,111 +2345,413 @@ public class BigInt implements Comparable<BigInt> {
      * @throws ArithmeticException On division by 0
      */
     public BigInt divide(BigInt divisor) throws ArithmeticException {
-        // inner division can only handle positive values
-        int signKeepDivisor = divisor.sign;
-        int signKeepThis = this.sign;
-        divisor.sign = 1;
-        this.sign = 1;
-        if (divisor.compareTo(ZERO) == 0) {
-            divisor.sign = signKeepDivisor;
-            this.sign = signKeepThis;
+        return divideAndRemainder(divisor)[0];
+    }
+
+    /**
+     * Truncating division of this by divisor, returning both the quotient and
+     * the remainder of a single long division.
+     * The remainder takes the sign of this, so that
+     * this == quotient * divisor + remainder.
+     * @param divisor
+     * @return { this / divisor, remainder of this / divisor }
+     * @throws ArithmeticException On division by 0
+     */
+    public BigInt[] divideAndRemainder(BigInt divisor) throws ArithmeticException {
+        if (divisor.length == 1 && divisor.digits[0] == 0) {
             throw new ArithmeticException("Attempted BigInt division by zero");
         }
-        // cut calculation short, and make sure that innerDivide gets a smaller
+        // Long.MIN_VALUE is not compact, so the long division cannot overflow
+        if (this.compact != INFLATED && divisor.compact != INFLATED) {
+            return new BigInt[] { valueOf(this.compact / divisor.compact), valueOf(this.compact % divisor.compact) };
+        }
+        // cut calculation short, and make sure that the long division gets a smaller
         // value in denominator
-        if (divisor.compareTo(this) > 0) {
-            divisor.sign = signKeepDivisor;
-            this.sign = signKeepThis;
-            return ZERO.deepCopy();
-        }
-        BigInt result = innerDivide(this, divisor);
-        divisor.sign = signKeepDivisor;
-        this.sign = signKeepThis;
-        result.sign = divisor.sign == this.sign ? 1 : -1;
-        return result;
+        if (compareMagnitudes(divisor.digits, divisor.length, this.digits, this.length) > 0) {
+            return new BigInt[] { ZERO, this };
+        }
+
+        BigInt[] result;
+        if (divisor.length < BURNIKEL_ZIEGLER_THRESHOLD || this.length - divisor.length < BURNIKEL_ZIEGLER_OFFSET) {
+            result = knuthDivide(this, divisor);
+        }
+        else {
+            result = burnikelZieglerDivide(this, divisor);
+        }
+        return new BigInt[] {
+                signedResult(result[0].digits, result[0].length, this.sign == divisor.sign ? 1 : -1),
+                signedResult(result[1].digits, result[1].length, this.sign)
+        };
     }
 
-    /*
-    I couldn't really find an example of this online, so here is an overview of
-    the division algorithm :
-        we write numerator = sum(over x: h * (denominator * 2^x)) + remainder where h is in {0, 1}
-        we get that the division equals sum(over x: h * 2^x)) - the binary representation of the division
+    /**
+     * Modulus of this by a positive modulus.
+     * Unlike the remainder of divideAndRemainder, the result is never negative.
+     * @param modulus
+     * @return this mod modulus, in [0, modulus)
+     * @throws ArithmeticException If modulus is not positive
+     */
+    public BigInt mod(BigInt modulus) throws ArithmeticException {
+        if (modulus.sign < 0 || (modulus.length == 1 && modulus.digits[0] == 0)) {
+            throw new ArithmeticException("Attempted BigInt modulus by a non-positive value");
+        }
+        if (this.compact != INFLATED && modulus.compact != INFLATED) {
+            return valueOf(Math.floorMod(this.compact, modulus.compact));
+        }
+        BigInt remainder = divideAndRemainder(modulus)[1];
+        return remainder.sign < 0 ? remainder.plus(modulus) : remainder;
+    }
 
-        step 1: add numerator to itself until it is larger than denominator (in variable curr)
-                while counting with the counter variable which is also added to itself
+    /**
+     * Truncating division by an int, in a single pass over the digits of this (a short division).
+     * @param divisor
+     * @return this / divisor
+     * @throws ArithmeticException On division by 0
+     */
+    public BigInt divide(int divisor) throws ArithmeticException {
+        if (divisor == 0) {
+            throw new ArithmeticException("Attempted BigInt division by zero");
+        }
+        if (compact != INFLATED) {
+            return valueOf(compact / divisor);
+        }
+        int[] quotient = new int[length];
+        divideMagnitudeByDigit(digits, length, Math.abs((long)divisor), quotient);
+        return signedResult(quotient, stripLeadingZeros(quotient, length), divisor < 0 ? -sign : sign);
+    }
 
-        step 2: divide curr and counter by 2, and copy them to backCurr and backCounter
+    /**
+     * The remainder of the truncating division by an int - it takes the sign of this (like
+     * the remainder of divideAndRemainder), and its magnitude is smaller than |divisor|.
+     * @param divisor
+     * @return this % divisor
+     * @throws ArithmeticException On division by 0
+     */
+    public int remainder(int divisor) throws ArithmeticException {
+        if (divisor == 0) {
+            throw new ArithmeticException("Attempted BigInt division by zero");
+        }
+        if (compact != INFLATED) {
+            return (int)(compact % divisor);
+        }
+        // the remainder is taken digit by digit from the most significant, without writing a quotient
+        long magnitude = Math.abs((long)divisor);
+        long remainder = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            remainder = (remainder * BASE + digits[i]) % magnitude; // < 2^31 * 10^9, no overflow
+        }
+        return (int)(sign * remainder);
+    }
 
-        step 3: continuously divide backCurr and backCounter by 2 until backCounter reaches 0.
-                Whenever the addition of backCurr and curr fits within numerator add backCounter
-                to counter.
+    /**
+     * Truncating division by an int, returning both the quotient and the remainder
+     * of a single short division - see divide(int) and remainder(int).
+     * @param divisor
+     * @return { this / divisor, remainder of this / divisor }
+     * @throws ArithmeticException On division by 0
+     */
+    public BigInt[] divideAndRemainder(int divisor) throws ArithmeticException {
+        if (divisor == 0) {
+            throw new ArithmeticException("Attempted BigInt division by zero");
+        }
+        if (compact != INFLATED) {
+            return new BigInt[] { valueOf(compact / divisor), valueOf(compact % divisor) };
+        }
+        int[] quotient = new int[length];
+        long remainder = divideMagnitudeByDigit(digits, length, Math.abs((long)divisor), quotient);
+        return new BigInt[] {
+                signedResult(quotient, stripLeadingZeros(quotient, length), divisor < 0 ? -sign : sign),
+                valueOf(sign * remainder)
+        };
+    }
 
-        basically, if denominator == x and numerator = 100110 * x + remainder,
-        we calculate counter to be 10000 (i.e. one doubling and adding less than surpassing numerator).
-        Then we 'fill in the blanks' on the way back whenever we can (adding when backCounter hits 10000, 100
-        and 10 to counter - those are the only values that will fit backCurr and curr in numerator).
+    // create a BigInt from a magnitude, making sure that zero is positive
+    static BigInt signedResult(int[] digits, int length, int sign) {
+        boolean isZero = length == 1 && digits[0] == 0;
+        return new BigInt(digits, length, isZero ? 1 : sign);
+    }
 
-        The complexity is O(n^2) (which is a lot, but division is a hard problem...) -
-        this is considering that addition and halving are linear operations, and both
-        loops run O(log_2(numerator)).
+    /*
+    Division of magnitudes (signs are ignored, results are positive) with Knuth's long division.
      */
-    private BigInt innerDivide(BigInt numerator, BigInt denominator) {
-        BigInt curr = denominator.deepCopy();
-        BigInt counter = ONE.deepCopy();
+    private static BigInt[] knuthDivide(BigInt numerator, BigInt divisor) {
+        if (compareMagnitudes(numerator.digits, numerator.length, divisor.digits, divisor.length) < 0) {
+            return new BigInt[] { ZERO, new BigInt(numerator.digits, numerator.length, 1) };
+        }
+        int[] quotient = new int[numerator.length - divisor.length + 1];
+        int[] remainder = new int[divisor.length];
+        if (divisor.length == 1) {
+            remainder[0] = (int)divideMagnitudeByDigit(numerator.digits, numerator.length, divisor.digits[0], quotient);
+        }
+        else {
+            divideMagnitudes(numerator.digits, numerator.length, divisor.digits, divisor.length, quotient, remainder);
+        }
+        return new BigInt[] {
+                new BigInt(quotient, stripLeadingZeros(quotient, quotient.length), 1),
+                new BigInt(remainder, stripLeadingZeros(remainder, remainder.length), 1)
+        };
+    }
+
+    /*
+    Burnikel and Ziegler's recursive division - "Fast Recursive Division" (MPI-I-98-1-022).
+    The idea is that dividing a 2n digit number by an n digit number can be done with two
+    divisions of 3/2 n digits by n digits, each of which is a recursive division of n digits
+    by n/2 digits, followed by a multiplication of n/2 by n/2 digits (done with 'multiply').
+    When the recursion reaches divisors of less than BURNIKEL_ZIEGLER_THRESHOLD digits (or an
+    odd number of digits), Knuth's long division takes over.
+
+    The divisor is first normalized (multiplied by a single digit, like in Knuth's division)
+    and padded with 'sigma' trailing zero digits, so that it is made of exactly n = j * 2^k
+    digits - that way it can be halved k times. The numerator gets the same treatment, and is
+    then cut into blocks of n digits which are divided from the most significant block down,
+    just like digits in a schoolbook long division. The padding and normalization are removed
+    from the remainder at the end.
+    The complexity is O(M(n) * log(n)) per block, M(n) being the cost of multiplying n digits.
+    Signs are ignored, results are positive.
+     */
+    private static BigInt[] burnikelZieglerDivide(BigInt numerator, BigInt divisor) {
+        int divisorLength = divisor.length;
+        // m - the smallest power of 2 such that m * BURNIKEL_ZIEGLER_THRESHOLD > divisorLength
+        int m = 1 << (32 - Integer.numberOfLeadingZeros(divisorLength / BURNIKEL_ZIEGLER_THRESHOLD));
+        int blockLength = ((divisorLength + m - 1) / m) * m;
+        int sigma = blockLength - divisorLength;
+
+        // normalize
+        int factor = BASE / (divisor.digits[divisorLength - 1] + 1);
+        BigInt b = shiftDigits(multiplyByDigit(divisor, factor), sigma);
+        BigInt a = shiftDigits(multiplyByDigit(numerator, factor), sigma);
 
-        // upwards loop, increasing curr and counter
-        while (curr.compareTo(numerator) < 0) {
-            curr = curr.plus(curr);
-            counter = counter.plus(counter);
+        // the numerator is cut into t blocks, with at least one leading zero digit in
+        // the top block - which makes it smaller than the (n digit) divisor
+        int t = Math.max(2, a.length / blockLength + 1);
+        int[] quotient = new int[(t - 1) * blockLength];
+        BigInt z = highDigits(a, (t - 2) * blockLength);
+        BigInt remainder = null;
+        for (int i = t - 2; i >= 0; i--) {
+            BigInt[] blockResult = divide2n1n(z, b, blockLength);
+            System.arraycopy(blockResult[0].digits, 0, quotient, i * blockLength, blockResult[0].length);
+            if (i > 0) {
+                z = new MutableBigInt(digitRange(a, (i - 1) * blockLength, i * blockLength), 2 * blockLength + 1)
+                        .add(blockResult[1], blockLength).toBigInt();
+            }
+            else {
+                remainder = blockResult[1];
+            }
         }
-        if (curr.compareTo(numerator) == 0) {
-            return counter;
+
+        // un-normalize the remainder (the lower 'sigma' digits are zeros)
+        BigInt shiftedRemainder = highDigits(remainder, sigma);
+        int[] remainderDigits = new int[shiftedRemainder.length];
+        divideMagnitudeByDigit(shiftedRemainder.digits, shiftedRemainder.length, factor, remainderDigits);
+        return new BigInt[] {
+                new BigInt(quotient, stripLeadingZeros(quotient, quotient.length), 1),
+                new BigInt(remainderDigits, stripLeadingZeros(remainderDigits, remainderDigits.length), 1)
+        };
+    }
+
+    /*
+    Division of a (up to 2n digits) by b (exactly n digits, normalized), where a < b * BASE^n.
+     */
+    private static BigInt[] divide2n1n(BigInt a, BigInt b, int n) {
+        if (n % 2 != 0 || n < BURNIKEL_ZIEGLER_THRESHOLD) {
+            return knuthDivide(a, b);
         }
+        int half = n / 2;
 
-        // set back values so that curr * 2 < numerator
+        // a == [a1, a2, a3, a4] in blocks of n / 2 digits
+        BigInt[] first = divide3n2n(highDigits(a, half), b, half); // [a1, a2, a3] / b
+        BigInt r1r2a4 = new MutableBigInt(lowDigits(a, half), n + half + 1).add(first[1], half).toBigInt();
+        BigInt[] second = divide3n2n(r1r2a4, b, half); // [r1, r2, a4] / b
+        return new BigInt[] { new MutableBigInt(second[0], n + 1).add(first[0], half).toBigInt(), second[1] };
+    }
+
+    /*
+    Division of a (up to 3 * half digits) by b (exactly 2 * half digits, normalized),
+    where a < b * BASE^half.
+     */
+    private static BigInt[] divide3n2n(BigInt a, BigInt b, int half) {
+        // a == [a1, a2, a3] and b == [b1, b2] in blocks of 'half' digits
+        BigInt b1 = highDigits(b, half);
+        BigInt b2 = lowDigits(b, half);
+        BigInt a12 = highDigits(a, half);
+        BigInt a1 = highDigits(a, 2 * half);
+
+        // estimate the quotient by [a1, a2] / b1 - it is at most 2 too large
+        BigInt quotient;
+        BigInt remainder;
+        if (compareMagnitudes(a1.digits, a1.length, b1.digits, b1.length) < 0) {
+            BigInt[] estimate = divide2n1n(a12, b1, half);
+            quotient = estimate[0];
+            remainder = estimate[1];
+        }
         else {
-            curr = divBy2(curr);
-            counter = divBy2(counter);
+            // quotient == BASE^half - 1, and [a1, a2] - quotient * b1 == [a1, a2] - [b1, 0] + b1
+            int[] maxDigits = new int[half];
+            Arrays.fill(maxDigits, MAX_DIGIT);
+            quotient = new BigInt(maxDigits, half, 1);
+            remainder = a12.minus(shiftDigits(b1, half)).plus(b1);
         }
-        BigInt backCurr = curr.deepCopy();
-        BigInt backCounter = counter.deepCopy();
 
-        // downwards loop
-        while (curr.compareTo(numerator) < 0 && backCounter.compareTo(ZERO) > 0) {
-            if (curr.plus(backCurr).compareTo(numerator) <= 0) {
-                curr = curr.plus(backCurr);
-                counter = counter.plus(backCounter);
-            }
-            backCurr = divBy2(backCurr);
-            backCounter = divBy2(backCounter);
+        // correct the estimate by the lower half of the divisor
+        BigInt correction = multiplyPositives(quotient, b2);
+        MutableBigInt corrected = new MutableBigInt(lowDigits(a, half), 3 * half + 1);
+        corrected.add(remainder, half).subtract(correction);
+        while (corrected.signum() < 0) {
+            corrected.add(b);
+            quotient = quotient.minus(ONE);
         }
+        return new BigInt[] { quotient, corrected.toBigInt() };
+    }
 
-        return counter;
+    /*
+    Helpers for cutting a value into blocks of digits (which are all positive):
+    value / BASE^n, value % BASE^n and the digits in [from, to).
+     */
+    private static BigInt highDigits(BigInt value, int n) {
+        return digitRange(value, n, value.length);
+    }
+
+    private static BigInt lowDigits(BigInt value, int n) {
+        return digitRange(value, 0, n);
+    }
+
+    private static BigInt digitRange(BigInt value, int from, int to) {
+        to = Math.min(to, value.length);
+        if (from >= to) {
+            return ZERO;
+        }
+        int[] range = Arrays.copyOfRange(value.digits, from, to);
+        return new BigInt(range, stripLeadingZeros(range, range.length), 1);
     }
 
     /*
-    Halving the input with even truncation.
+    Multiplication of the magnitude by a single digit in [0, BASE).
      */
-    BigInt divBy2(BigInt full) {
-        BigInt result = full.deepCopy();
-        int carry = 0;
-        int i = full.digits.size() - 1;
-        while (i >= 0) {
-            result.digits.set(i, (full.digits.get(i) + (carry * BASE)) / 2);
-            if ((full.digits.get(i) + (carry * BASE)) % 2 == 1) {
-                carry = 1;
+    private static BigInt multiplyByDigit(BigInt value, int factor) {
+        int[] result = new int[value.length + 1];
+        int resultLength = multiplyMagnitudeByDigit(value.digits, value.length, factor, result);
+        return new BigInt(result, stripLeadingZeros(result, resultLength), 1);
+    }
+
+    /*
+    Knuth's long division (The Art of Computer Programming vol. 2, 4.3.1, Algorithm D),
+    in base 10^9:
+        step 1: normalize - multiply numerator and divisor by a single digit factor so that
+                the divisor's leading digit is at least BASE / 2. This does not change the
+                quotient, and only scales the remainder.
+
+        step 2: for every digit of the quotient (most significant first), estimate it from the
+                two leading digits of the current partial remainder and the leading digit of the
+                divisor. The estimate is corrected down using the divisor's second digit, after
+                which it is at most 1 too large (this is what the normalization buys us).
+
+        step 3: multiply the divisor by the estimated digit and subtract it from the partial
+                remainder. If the result is negative, the estimate was 1 too large - add the
+                divisor back and decrement the digit.
+
+        step 4: un-normalize the remainder by dividing it by the factor from step 1.
+
+    Every quotient digit costs O(divisorLength), for O(quotientLength * divisorLength) total.
+    Requires divisorLength >= 2 and numerator >= divisor. 'quotient' must have room for
+    numeratorLength - divisorLength + 1 digits, and 'remainder' for divisorLength digits.
+     */
+    private static void divideMagnitudes(int[] numerator, int numeratorLength, int[] divisor, int divisorLength,
+                                         int[] quotient, int[] remainder) {
+        // step 1
+        int factor = BASE / (divisor[divisorLength - 1] + 1);
+        Scratch scratch = Scratch.get();
+        int[] u = scratch.take(numeratorLength + 1);
+        int[] v = scratch.take(divisorLength);
+        multiplyMagnitudeByDigit(numerator, numeratorLength, factor, u);
+        multiplyMagnitudeByDigit(divisor, divisorLength, factor, v);
+
+        long vTop = v[divisorLength - 1];
+        long vSecond = v[divisorLength - 2];
+        for (int j = numeratorLength - divisorLength; j >= 0; j--) {
+            // step 2
+            long uTop = (long)u[j + divisorLength] * BASE + u[j + divisorLength - 1];
+            long estimate = uTop / vTop;
+            long estimateRemainder = uTop % vTop;
+            while (estimate >= BASE ||
+                    estimate * vSecond > estimateRemainder * BASE + u[j + divisorLength - 2]) {
+                estimate--;
+                estimateRemainder += vTop;
+                if (estimateRemainder >= BASE) {
+                    break;
+                }
             }
-            else {
-                carry = 0;
+
+            // step 3
+            long carry = 0;
+            int borrow = 0;
+            for (int i = 0; i < divisorLength; i++) {
+                long product = estimate * v[i] + carry;
+                carry = product / BASE;
+                int digitSub = u[i + j] - (int)(product % BASE) - borrow;
+                borrow = digitSub < 0 ? 1 : 0;
+                u[i + j] = digitSub + (borrow * BASE);
             }
-            i--;
+            long topSub = u[j + divisorLength] - carry - borrow;
+            if (topSub < 0) {
+                estimate--;
+                int addCarry = 0;
+                for (int i = 0; i < divisorLength; i++) {
+                    int digitSum = u[i + j] + v[i] + addCarry;
+                    addCarry = digitSum > MAX_DIGIT ? 1 : 0;
+                    u[i + j] = digitSum - (addCarry * BASE);
+                }
+                topSub += addCarry;
+            }
+            // the partial remainder is now smaller than the divisor
+            u[j + divisorLength] = (int)topSub;
+            quotient[j] = (int)estimate;
         }
 
-        // if leading digit was 1, a leading zero may be created
-        if (result.digits.get(result.digits.size() - 1) == 0) {
-            result.digits.remove(result.digits.size() - 1);
+        // step 4
+        divideMagnitudeByDigit(u, divisorLength, factor, remainder);
+        scratch.give(v);
+        scratch.give(u);
+    }
+
+    /*
+    Writes value * factor into 'result' for 0 <= factor <= 2^31. 'result' must have room
+    for 'valueLength' + 2 digits ('valueLength' + 1 is enough when factor < BASE).
+    Returns the number of digits used.
+     */
+    private static int multiplyMagnitudeByDigit(int[] value, int valueLength, long factor, int[] result) {
+        long carry = 0;
+        for (int i = 0; i < valueLength; i++) {
+            long product = value[i] * factor + carry; // < 2^31 * 10^9 + 2^31, no overflow
+            result[i] = (int)(product % BASE);
+            carry = product / BASE;
         }
+        int resultLength = valueLength;
+        while (carry > 0) {
+            result[resultLength++] = (int)(carry % BASE);
+            carry /= BASE;
+        }
+        return resultLength;
+    }
 
-        return result;
+    /*
+    Short division - writes value / divisor into 'quotient' (which must have room for
+    'valueLength' digits and may end up with leading zeros) for 0 < divisor <= 2^31,
+    and returns the remainder.
+     */
+    private static long divideMagnitudeByDigit(int[] value, int valueLength, long divisor, int[] quotient) {
+        long remainder = 0;
+        for (int i = valueLength - 1; i >= 0; i--) {
+            long current = remainder * BASE + value[i]; // < 2^31 * 10^9, no overflow
+            quotient[i] = (int)(current / divisor);
+            remainder = current % divisor;
+        }
+        return remainder;
+    }
+
+    /*
+    Halving the input with even truncation (towards zero) - a short division by 2.
+     */
+    BigInt divBy2(BigInt full) {
+        return full.divide(2);
     }
 }
@@ -0,0 +1,597 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+public class BigIntBenchmark {
+    // minimal time for every measurement (and for its warm-up), in nanoseconds
+    static final long MEASURE_TIME = 200_000_000L;
+    static final Random random = new Random(12321);
+
+    /*
+    Creates a positive BigInt of exactly 'length' digits (in base 10^9).
+     */
+    static BigInt randomBigInt(int length) {
+        StringBuilder buff = new StringBuilder(length * 9);
+        buff.append((char)('1' + random.nextInt(9)));
+        for (int i = 1; i < length * 9; i++) {
+            buff.append((char)('0' + random.nextInt(10)));
+        }
+        return new BigInt(buff.toString());
+    }
+
+    /*
+    Average time of a single call to 'operation', in microseconds. The operation is first
+    repeated for MEASURE_TIME to let the JIT compiler warm up, and then measured for at
+    least as long again.
+     */
+    static double measure(Supplier<?> operation) {
+        Object sink = null;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < MEASURE_TIME) {
+            sink = operation.get();
+        }
+        long calls = 0;
+        start = System.nanoTime();
+        long elapsed;
+        do {
+            sink = operation.get();
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MEASURE_TIME);
+        if (sink == null) {
+            System.out.print("");
+        }
+        return elapsed / 1000.0 / calls;
+    }
+
+    static String formatTime(double micros) {
+        return String.format("%12.1f", micros);
+    }
+
+    /*
+    Multiplication of n by n digits over a grid of sizes and one of the size thresholds
+    (a column of Integer.MAX_VALUE never switches to the faster algorithm).
+     */
+    static void thresholdBenchmark(String title, int[] sizes, int[] thresholds,
+                                   IntConsumer setThreshold, BiFunction<BigInt, BigInt, Object> operation) {
+        System.out.println(title + ", microseconds per call, by threshold:");
+        StringBuilder header = new StringBuilder(String.format("%8s", "n"));
+        for (int threshold : thresholds) {
+            header.append(String.format("%12s", threshold == Integer.MAX_VALUE ? "never" : threshold));
+        }
+        System.out.println(header);
+        for (int size : sizes) {
+            BigInt first = randomBigInt(size);
+            BigInt second = randomBigInt(size);
+            StringBuilder row = new StringBuilder(String.format("%8d", size));
+            for (int threshold : thresholds) {
+                setThreshold.accept(threshold);
+                row.append(formatTime(measure(() -> operation.apply(first, second))));
+            }
+            System.out.println(row);
+        }
+    }
+
+    static void multiplyBenchmark() {
+        int keepKaratsuba = BigInt.KARATSUBA_THRESHOLD;
+        int keepToomCook = BigInt.TOOM_COOK_THRESHOLD;
+
+        BigInt.TOOM_COOK_THRESHOLD = Integer.MAX_VALUE;
+        thresholdBenchmark("multiply n * n digits (karatsuba threshold)",
+                new int[] { 10, 20, 40, 80, 160, 320 },
+                new int[] { 10, 20, 40, 80, Integer.MAX_VALUE },
+                threshold -> BigInt.KARATSUBA_THRESHOLD = threshold, BigInt::multiply);
+        BigInt.KARATSUBA_THRESHOLD = keepKaratsuba;
+        thresholdBenchmark("multiply n * n digits (Toom-Cook threshold)",
+                new int[] { 160, 320, 640, 1280, 2560, 5120 },
+                new int[] { 120, 240, 480, 960, Integer.MAX_VALUE },
+                threshold -> BigInt.TOOM_COOK_THRESHOLD = threshold, BigInt::multiply);
+        BigInt.TOOM_COOK_THRESHOLD = keepToomCook;
+        int keepNtt = BigInt.NTT_THRESHOLD;
+        thresholdBenchmark("multiply n * n digits (NTT threshold)",
+                new int[] { 750, 1500, 3000, 6000, 12000 },
+                new int[] { 750, 1500, 3000, Integer.MAX_VALUE },
+                threshold -> BigInt.NTT_THRESHOLD = threshold, BigInt::multiply);
+        BigInt.NTT_THRESHOLD = keepNtt;
+    }
+
+    static void squareBenchmark() {
+        int keepKaratsuba = BigInt.KARATSUBA_SQUARE_THRESHOLD;
+        int keepToomCook = BigInt.TOOM_COOK_SQUARE_THRESHOLD;
+
+        BigInt.TOOM_COOK_SQUARE_THRESHOLD = Integer.MAX_VALUE;
+        thresholdBenchmark("square n digits (karatsuba threshold)",
+                new int[] { 20, 40, 80, 160, 320 },
+                new int[] { 20, 40, 80, 160, Integer.MAX_VALUE },
+                threshold -> BigInt.KARATSUBA_SQUARE_THRESHOLD = threshold, (first, second) -> first.square());
+        BigInt.KARATSUBA_SQUARE_THRESHOLD = keepKaratsuba;
+        thresholdBenchmark("square n digits (Toom-Cook threshold)",
+                new int[] { 160, 320, 640, 1280 },
+                new int[] { 160, 320, 640, Integer.MAX_VALUE },
+                threshold -> BigInt.TOOM_COOK_SQUARE_THRESHOLD = threshold, (first, second) -> first.square());
+        BigInt.TOOM_COOK_SQUARE_THRESHOLD = keepToomCook;
+
+        System.out.println("square against multiplication by an equal copy, microseconds per call:");
+        System.out.println(String.format("%8s%12s%12s", "n", "multiply", "square"));
+        for (int size : new int[] { 10, 100, 1000, 10000 }) {
+            BigInt value = randomBigInt(size);
+            BigInt copy = value.deepCopy();
+            System.out.println(String.format("%8d", size) + formatTime(measure(() -> value.multiply(copy))) +
+                    formatTime(measure(value::square)));
+        }
+    }
+
+    /*
+    Multiplication of factors of different lengths, n digits by n * ratio digits - as balanced
+    karatsuba/Toom-Cook/NTT multiplications that split the factors by the longer one ("split"),
+    and in blocks of the shorter factor's length (the default, see BigInt.UNBALANCED_RATIO).
+     */
+    static void unbalancedBenchmark() {
+        int keepRatio = BigInt.UNBALANCED_RATIO;
+        System.out.println("multiply n * (n * ratio) digits, microseconds per call:");
+        System.out.println(String.format("%8s%8s%12s%12s", "n", "ratio", "split", "blocks"));
+        for (int size : new int[] { 50, 500 }) {
+            for (int ratio : new int[] { 1, 2, 4, 10, 100, 1000 }) {
+                BigInt first = randomBigInt(size);
+                BigInt second = randomBigInt(size * ratio);
+                StringBuilder row = new StringBuilder(String.format("%8d%8d", size, ratio));
+                for (int unbalancedRatio : new int[] { Integer.MAX_VALUE, keepRatio }) {
+                    BigInt.UNBALANCED_RATIO = unbalancedRatio;
+                    row.append(formatTime(measure(() -> first.multiply(second))));
+                }
+                System.out.println(row);
+            }
+        }
+        BigInt.UNBALANCED_RATIO = keepRatio;
+    }
+
+    /*
+    Sums of products of n digit factors - acc = acc.plus(a.multiply(b)) in a loop, against
+    dot (which accumulates the products in place) and dotParallel on the common pool.
+     */
+    static void dotBenchmark() {
+        System.out.println("dot product of terms * n digits, microseconds per call:");
+        System.out.println(String.format("%8s%8s%12s%12s%12s", "terms", "n", "loop", "dot", "parallel"));
+        for (int[] shape : new int[][] { { 1000, 2 }, { 1000, 10 }, { 10000, 10 }, { 1000, 100 }, { 100, 1000 } }) {
+            int terms = shape[0];
+            BigInt[] firsts = new BigInt[terms];
+            BigInt[] seconds = new BigInt[terms];
+            for (int i = 0; i < terms; i++) {
+                firsts[i] = randomBigInt(shape[1]);
+                seconds[i] = i % 2 == 0 ? randomBigInt(shape[1]) : BigInt.ZERO.minus(randomBigInt(shape[1]));
+            }
+            System.out.println(String.format("%8d%8d", terms, shape[1]) +
+                    formatTime(measure(() -> {
+                        BigInt sum = BigInt.ZERO;
+                        for (int i = 0; i < terms; i++) {
+                            sum = sum.plus(firsts[i].multiply(seconds[i]));
+                        }
+                        return sum;
+                    })) +
+                    formatTime(measure(() -> BigInt.dot(firsts, seconds))) +
+                    formatTime(measure(() -> BigInt.dotParallel(firsts, seconds))));
+        }
+    }
+
+    /*
+    Products of many values folded from left to right, against product trees (sequential and
+    parallel on the common pool), and the same for the factorial.
+     */
+    static void reduceBenchmark() {
+        System.out.println("product of values * n digits, microseconds per call:");
+        System.out.println(String.format("%8s%8s%12s%12s%12s", "values", "n", "fold", "tree", "parallel"));
+        for (int[] shape : new int[][] { { 1000, 1 }, { 10000, 1 }, { 1000, 10 } }) {
+            List<BigInt> values = new ArrayList<>();
+            for (int i = 0; i < shape[0]; i++) {
+                values.add(randomBigInt(shape[1]));
+            }
+            System.out.println(String.format("%8d%8d", shape[0], shape[1]) +
+                    formatTime(measure(() -> values.stream().reduce(BigInt.ONE, BigInt::multiply))) +
+                    formatTime(measure(() -> BigInt.product(values))) +
+                    formatTime(measure(() -> BigInt.productParallel(values))));
+        }
+        System.out.println("factorial of n, microseconds per call:");
+        System.out.println(String.format("%8s%12s%12s%12s", "n", "fold", "tree", "parallel"));
+        for (int n : new int[] { 1000, 10000, 50000 }) {
+            System.out.println(String.format("%8d", n) +
+                    formatTime(measure(() -> {
+                        BigInt factorial = BigInt.ONE;
+                        for (int i = 2; i <= n; i++) {
+                            factorial = factorial.multiply(i);
+                        }
+                        return factorial;
+                    })) +
+                    formatTime(measure(() -> BigInt.factorial(n))) +
+                    formatTime(measure(() -> BigInt.factorialParallel(n))));
+        }
+    }
+
+    /*
+    Sequential against parallel multiplication of n by n digits, on the common pool.
+     */
+    static void multiplyParallelBenchmark() {
+        System.out.println("multiply n * n digits on " + ForkJoinPool.commonPool().getParallelism() +
+                " threads, microseconds per call:");
+        System.out.println(String.format("%8s%12s%12s", "n", "multiply", "parallel"));
+        for (int size : new int[] { 500, 1000, 4000, 16000, 64000 }) {
+            BigInt first = randomBigInt(size);
+            BigInt second = randomBigInt(size);
+            System.out.println(String.format("%8d", size) + formatTime(measure(() -> first.multiply(second))) +
+                    formatTime(measure(() -> first.multiplyParallel(second))));
+        }
+    }
+
+    /*
+    Parsing from a String and a byte[], and streaming from a Reader and a channel (over the same
+    characters in memory, so only the parsing is measured).
+     */
+    static void parseBenchmark() {
+        System.out.println("parsing n digits, microseconds per call:");
+        System.out.println(String.format("%8s%12s%12s%12s%12s", "n", "String", "byte[]", "Reader", "channel"));
+        for (int size : new int[] { 1, 10, 1000, 100000, 1000000 }) {
+            String chars = randomBigInt(size).toString();
+            byte[] bytes = chars.getBytes(StandardCharsets.US_ASCII);
+            System.out.println(String.format("%8d", size) + formatTime(measure(() -> new BigInt(chars))) +
+                    formatTime(measure(() -> new BigInt(bytes, 0, bytes.length))) +
+                    formatTime(measure(() -> parseStream(() -> BigInt.parse(new StringReader(chars))))) +
+                    formatTime(measure(() -> parseStream(() -> BigInt.parse(Channels.newChannel(new ByteArrayInputStream(bytes)))))));
+        }
+    }
+
+    interface StreamParse {
+        BigInt get() throws IOException;
+    }
+
+    static BigInt parseStream(StreamParse parse) {
+        try {
+            return parse.get();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+    toString, against writing the same characters in chunks to a Writer and an OutputStream
+    (which discard them, so only the formatting is measured).
+     */
+    static void toStringBenchmark() {
+        System.out.println("toString of n digits, microseconds per call:");
+        System.out.println(String.format("%8s%12s%12s%12s", "n", "toString", "Writer", "stream"));
+        Writer writer = Writer.nullWriter();
+        OutputStream stream = OutputStream.nullOutputStream();
+        for (int size : new int[] { 1, 10, 1000, 100000, 1000000 }) {
+            BigInt value = randomBigInt(size);
+            System.out.println(String.format("%8d", size) + formatTime(measure(value::toString)) +
+                    formatTime(measure(() -> writeDecimal(() -> value.writeDecimal(writer)))) +
+                    formatTime(measure(() -> writeDecimal(() -> value.writeDecimal(stream)))));
+        }
+    }
+
+    interface DecimalWrite {
+        void run() throws IOException;
+    }
+
+    static Object writeDecimal(DecimalWrite write) {
+        try {
+            write.run();
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+    Round trips of n digits through the binary format (through a byte array, and through a
+    channel writing to memory) and through the decimal string.
+     */
+    static void serializeBenchmark() {
+        System.out.println("round trip of n digits, microseconds per call:");
+        System.out.println(String.format("%8s%12s%12s%12s", "n", "byte[]", "channel", "String"));
+        for (int size : new int[] { 1, 10, 1000, 100000, 1000000 }) {
+            BigInt value = randomBigInt(size);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(value.serializedLength());
+            System.out.println(String.format("%8d", size) +
+                    formatTime(measure(() -> BigInt.fromByteArray(value.toByteArray()))) +
+                    formatTime(measure(() -> {
+                        try {
+                            out.reset();
+                            value.writeTo(Channels.newChannel(out));
+                            return BigInt.readFrom(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })) +
+                    formatTime(measure(() -> new BigInt(value.toString()))));
+        }
+    }
+
+    /*
+    Division of 2n digits by n digits, with Burnikel-Ziegler's recursion cut off at different
+    thresholds (the last column never recurses, which is Knuth's long division on its own).
+    The best threshold for a size is the point where recursing one more level stops paying off.
+     */
+    static void divideBenchmark() {
+        int[] sizes = { 40, 160, 640, 2560, 5120, 10240 };
+        int[] thresholds = { 40, 160, 640, 2560, Integer.MAX_VALUE };
+        int keepThreshold = BigInt.BURNIKEL_ZIEGLER_THRESHOLD;
+        int keepOffset = BigInt.BURNIKEL_ZIEGLER_OFFSET;
+
+        System.out.println("divide 2n / n digits, microseconds per call, by Burnikel-Ziegler threshold:");
+        StringBuilder header = new StringBuilder(String.format("%8s", "n"));
+        for (int threshold : thresholds) {
+            header.append(String.format("%12s", threshold == Integer.MAX_VALUE ? "knuth" : threshold));
+        }
+        System.out.println(header);
+        BigInt.BURNIKEL_ZIEGLER_OFFSET = 0;
+        for (int size : sizes) {
+            BigInt numerator = randomBigInt(2 * size);
+            BigInt divisor = randomBigInt(size);
+            StringBuilder row = new StringBuilder(String.format("%8d", size));
+            for (int threshold : thresholds) {
+                BigInt.BURNIKEL_ZIEGLER_THRESHOLD = threshold;
+                row.append(formatTime(measure(() -> numerator.divideAndRemainder(divisor))));
+            }
+            System.out.println(row);
+        }
+        BigInt.BURNIKEL_ZIEGLER_THRESHOLD = keepThreshold;
+        BigInt.BURNIKEL_ZIEGLER_OFFSET = keepOffset;
+    }
+
+    /*
+    Multiplication and division by an int, against the same operations with the int as a BigInt.
+     */
+    static void intBenchmark() {
+        System.out.println("n digits by an int, microseconds per call:");
+        System.out.println(String.format("%8s%12s%12s%12s%12s", "n", "multiply", "(BigInt)", "divide", "(BigInt)"));
+        int factor = 1234567891;
+        BigInt bigFactor = BigInt.valueOf(factor);
+        for (int size : new int[] { 10, 100, 1000, 10000 }) {
+            BigInt value = randomBigInt(size);
+            System.out.println(String.format("%8d", size) +
+                    formatTime(measure(() -> value.multiply(factor))) +
+                    formatTime(measure(() -> value.multiply(bigFactor))) +
+                    formatTime(measure(() -> value.divide(factor))) +
+                    formatTime(measure(() -> value.divide(bigFactor))));
+        }
+    }
+
+    /*
+    BigInt against BinaryBigInt on the same values - the arithmetic, and the decimal
+    conversions that BinaryBigInt pays for in its constructor and toString.
+     */
+    static void binaryBenchmark() {
+        System.out.println("BigInt (base 10^9) against BinaryBigInt (base 2^32), n digits of base 10^9, microseconds per call:");
+        System.out.println(String.format("%8s%12s%12s%12s%12s%12s%12s", "n", "multiply", "binary", "divide", "binary",
+                "parse", "binary"));
+        int keepKaratsuba = BinaryBigInt.KARATSUBA_THRESHOLD;
+        for (int size : new int[] { 10, 40, 100, 400, 1000, 4000 }) {
+            BigInt first = randomBigInt(size);
+            BigInt second = randomBigInt(size);
+            BigInt numerator = first.multiply(second).plus(first);
+            String chars = first.toString();
+            BinaryBigInt binaryFirst = new BinaryBigInt(first.toString());
+            BinaryBigInt binarySecond = new BinaryBigInt(second.toString());
+            BinaryBigInt binaryNumerator = new BinaryBigInt(numerator.toString());
+            System.out.println(String.format("%8d", size) +
+                    formatTime(measure(() -> first.multiply(second))) +
+                    formatTime(measure(() -> binaryFirst.multiply(binarySecond))) +
+                    formatTime(measure(() -> numerator.divide(second))) +
+                    formatTime(measure(() -> binaryNumerator.divide(binarySecond))) +
+                    formatTime(measure(() -> new BigInt(chars))) +
+                    formatTime(measure(() -> new BinaryBigInt(chars))));
+        }
+        // BinaryBigInt's digits are a bit larger (10^9 < 2^32), so its karatsuba threshold is tuned separately
+        int[] thresholds = { 16, 32, 48, 64, Integer.MAX_VALUE };
+        System.out.println("BinaryBigInt multiply n * n digits, microseconds per call, by karatsuba threshold:");
+        StringBuilder header = new StringBuilder(String.format("%8s", "n"));
+        for (int threshold : thresholds) {
+            header.append(String.format("%12s", threshold == Integer.MAX_VALUE ? "never" : threshold));
+        }
+        System.out.println(header);
+        for (int size : new int[] { 16, 32, 64, 128, 256 }) {
+            BinaryBigInt first = new BinaryBigInt(randomBigInt(size).toString());
+            BinaryBigInt second = new BinaryBigInt(randomBigInt(size).toString());
+            StringBuilder row = new StringBuilder(String.format("%8d", size));
+            for (int threshold : thresholds) {
+                BinaryBigInt.KARATSUBA_THRESHOLD = threshold;
+                row.append(formatTime(measure(() -> first.multiply(second))));
+            }
+            System.out.println(row);
+        }
+        BinaryBigInt.KARATSUBA_THRESHOLD = keepKaratsuba;
+    }
+
+    /*
+    Scalar against vectorized addition and subtraction (run with --add-modules jdk.incubator.vector
+    and VectorMagnitudes on the class path - see BigInt.VECTOR_KERNELS).
+     */
+    static void vectorBenchmark() {
+        if (BigInt.VECTOR_KERNELS == null) {
+            System.out.println("vector kernels not available, skipping the vector benchmark");
+            return;
+        }
+        int keepThreshold = BigInt.VECTOR_THRESHOLD;
+        int[] sizes = { 8, 16, 32, 64, 256, 4096, 65536, 1 << 20 };
+        int[] thresholds = { Integer.MAX_VALUE, 1 };
+        thresholdBenchmark("plus n + n digits", sizes, thresholds,
+                threshold -> BigInt.VECTOR_THRESHOLD = threshold, BigInt::plus);
+        thresholdBenchmark("minus n - n digits", sizes, thresholds,
+                threshold -> BigInt.VECTOR_THRESHOLD = threshold, BigInt::minus);
+        BigInt.VECTOR_THRESHOLD = keepThreshold;
+    }
+
+    /*
+    Addition and multiplication of n by n digits on the heap and in memory-mapped files
+    (where the mapped multiplication multiplies blocks of MappedBigInt.BLOCK_DIGITS digits).
+     */
+    static void mappedBenchmark() {
+        System.out.println("mapped files, n by n digits, microseconds per call:");
+        System.out.println(String.format("%8s%12s%12s%12s%12s", "n", "plus", "mapped", "multiply", "mapped"));
+        try {
+            Path directory = Files.createTempDirectory("mappedBenchmark");
+            Path first = directory.resolve("first");
+            Path second = directory.resolve("second");
+            Path result = directory.resolve("result");
+            for (int size : new int[] { 1000, 10000, 100000, 1000000 }) {
+                BigInt value = randomBigInt(size);
+                BigInt other = randomBigInt(size);
+                MappedBigInt mappedValue = MappedBigInt.create(first, value);
+                MappedBigInt mappedOther = MappedBigInt.create(second, other);
+                System.out.println(String.format("%8d", size) + formatTime(measure(() -> value.plus(other))) +
+                        formatTime(measure(() -> mapped(() -> mappedValue.plus(mappedOther, result)))) +
+                        formatTime(measure(() -> value.multiply(other))) +
+                        formatTime(measure(() -> mapped(() -> mappedValue.multiply(mappedOther, result)))));
+            }
+            for (Path file : new Path[] { first, second, result, directory }) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    interface MappedOperation {
+        MappedBigInt get() throws IOException;
+    }
+
+    static MappedBigInt mapped(MappedOperation operation) {
+        try {
+            return operation.get();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+    Scratch arrays taken and allocated per call, once warmed up (see BigInt.Scratch) - a steady
+    state call should take its temporaries from the scratch pool without allocating any.
+     */
+    static void scratchBenchmark() {
+        System.out.println("scratch arrays per call:");
+        System.out.println(String.format("%-28s%12s%12s%12s", "operation", "micros", "taken", "allocated"));
+        BigInt karatsubaFactor = randomBigInt(200);
+        BigInt nttFactor = randomBigInt(4000);
+        BigInt numerator = randomBigInt(400);
+        scratchRow("multiply 200 * 200", () -> karatsubaFactor.multiply(karatsubaFactor.plus(BigInt.ONE)));
+        scratchRow("square 200", karatsubaFactor::square);
+        scratchRow("multiply 4000 * 4000", () -> nttFactor.multiply(nttFactor.plus(BigInt.ONE)));
+        scratchRow("divide 400 / 200", () -> numerator.divideAndRemainder(karatsubaFactor));
+    }
+
+    static void scratchRow(String title, Supplier<?> operation) {
+        double micros = measure(operation);
+        int calls = 100;
+        long taken = BigInt.Scratch.taken();
+        long allocated = BigInt.Scratch.allocated();
+        for (int i = 0; i < calls; i++) {
+            operation.get();
+        }
+        System.out.println(String.format("%-28s", title) + formatTime(micros) +
+                String.format("%12.1f%12.1f", (BigInt.Scratch.taken() - taken) / (double)calls,
+                        (BigInt.Scratch.allocated() - allocated) / (double)calls));
+    }
+
+    /*
+    The basic operations on n digits (base 10^9 limbs) from 1 to 100,000, each against the same
+    operation of java.math.BigInteger on the same values, as a baseline - the ratio column is
+    BigInt's time over BigInteger's (below 1 is faster), which makes runs on different machines
+    (or of different commits) comparable. divide is 2n / n digits, and divBy2 is compared with
+    BigInteger's shiftRight(1).
+     */
+    static void baselineBenchmark() {
+        System.out.println("BigInt against BigInteger, n digits, microseconds per call:");
+        System.out.println(String.format("%-12s%8s%14s%14s%8s", "operation", "n", "BigInt", "BigInteger", "ratio"));
+        for (int size : new int[] { 1, 10, 100, 1000, 10000, 100000 }) {
+            BigInt first = randomBigInt(size);
+            BigInt second = randomBigInt(size);
+            BigInt numerator = randomBigInt(2 * size);
+            BigInt copy = first.deepCopy();
+            String chars = first.toString();
+            BigInteger bigFirst = new BigInteger(chars);
+            BigInteger bigSecond = new BigInteger(second.toString());
+            BigInteger bigNumerator = new BigInteger(numerator.toString());
+            BigInteger bigCopy = new BigInteger(chars);
+            baselineRow("construct", size, () -> new BigInt(chars), () -> new BigInteger(chars));
+            baselineRow("toString", size, first::toString, bigFirst::toString);
+            // equal values, so that every digit is compared
+            baselineRow("compareTo", size, () -> first.compareTo(copy), () -> bigFirst.compareTo(bigCopy));
+            baselineRow("plus", size, () -> first.plus(second), () -> bigFirst.add(bigSecond));
+            baselineRow("minus", size, () -> first.minus(second), () -> bigFirst.subtract(bigSecond));
+            baselineRow("multiply", size, () -> first.multiply(second), () -> bigFirst.multiply(bigSecond));
+            baselineRow("divide", size, () -> numerator.divide(second), () -> bigNumerator.divide(bigSecond));
+            baselineRow("divBy2", size, () -> first.divBy2(first), () -> bigFirst.shiftRight(1));
+        }
+    }
+
+    static void baselineRow(String operation, int size, Supplier<?> bigInt, Supplier<?> bigInteger) {
+        double micros = measure(bigInt);
+        double baseline = measure(bigInteger);
+        System.out.println(String.format("%-12s%8d", operation, size) + String.format("%14.1f%14.1f%8.3f", micros, baseline, micros / baseline));
+    }
+
+    /*
+    Runs the benchmarks named in 'names' ("baseline", "multiply", ...), or all of them if there are none.
+     */
+    public static void start(String... names) {
+        if (names.length == 0) {
+            start();
+            return;
+        }
+        for (String name : names) {
+            switch (name) {
+                case "baseline" -> baselineBenchmark();
+                case "parse" -> parseBenchmark();
+                case "toString" -> toStringBenchmark();
+                case "serialize" -> serializeBenchmark();
+                case "multiply" -> multiplyBenchmark();
+                case "unbalanced" -> unbalancedBenchmark();
+                case "parallel" -> multiplyParallelBenchmark();
+                case "dot" -> dotBenchmark();
+                case "reduce" -> reduceBenchmark();
+                case "square" -> squareBenchmark();
+                case "divide" -> divideBenchmark();
+                case "int" -> intBenchmark();
+                case "binary" -> binaryBenchmark();
+                case "mapped" -> mappedBenchmark();
+                case "vector" -> vectorBenchmark();
+                case "scratch" -> scratchBenchmark();
+                default -> throw new IllegalArgumentException("No benchmark named " + name);
+            }
+        }
+    }
+
+    public static void start() {
+        baselineBenchmark();
+        parseBenchmark();
+        toStringBenchmark();
+        serializeBenchmark();
+        multiplyBenchmark();
+        unbalancedBenchmark();
+        multiplyParallelBenchmark();
+        dotBenchmark();
+        reduceBenchmark();
+        squareBenchmark();
+        divideBenchmark();
+        intBenchmark();
+        binaryBenchmark();
+        mappedBenchmark();
+        vectorBenchmark();
+        scratchBenchmark();
+    }
+}
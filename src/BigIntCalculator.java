@@ -1,5 +1,9 @@
 import javax.annotation.processing.SupportedSourceVersion;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
 
 import static java.lang.System.exit;
@@ -9,7 +13,7 @@ public class BigIntCalculator {
         "Usage: Enter two integer numbers consecutively. The addition, subtraction, multiplication and truncating division " +
             "of these will be outputted to the screen.";
 
-    public void start() {
+    public void start() throws IOException {
         Scanner scan = new Scanner(System.in);
         BigInt a = null;
         BigInt b = null;
@@ -30,14 +34,32 @@ public class BigIntCalculator {
                 System.out.println("Not a number");
             }
         }
-        System.out.println(a + " + " + b + " = " + a.plus(b));
-        System.out.println(a + " - " + b + " = " + a.minus(b));
-        System.out.println(a + " * " + b + " = " + a.multiply(b));
+        // the values are written through a buffer in chunks, instead of being
+        // concatenated into one (possibly huge) string for every line
+        OutputStream out = new BufferedOutputStream(System.out, 1 << 16);
+        printResult(out, a, " + ", b, a.plus(b));
+        printResult(out, a, " - ", b, a.minus(b));
+        printResult(out, a, " * ", b, a.multiply(b));
         if (!b.equals(BigInt.ZERO)) { // I realize that I can catch the ArithmeticException, but come on...
-            System.out.println(a + " / " + b + " = " + a.divide(b));
+            printResult(out, a, " / ", b, a.divide(b));
         }
         else {
-            System.out.println("Division by 0 is undefined");
+            printLine(out, "Division by 0 is undefined");
         }
+        out.flush();
+    }
+
+    // prints "a <operator> b = result"
+    private static void printResult(OutputStream out, BigInt a, String operator, BigInt b, BigInt result) throws IOException {
+        a.writeDecimal(out);
+        out.write(operator.getBytes(StandardCharsets.US_ASCII));
+        b.writeDecimal(out);
+        out.write(" = ".getBytes(StandardCharsets.US_ASCII));
+        result.writeDecimal(out);
+        printLine(out, "");
+    }
+
+    private static void printLine(OutputStream out, String line) throws IOException {
+        out.write((line + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII));
     }
 }
@@ -1,3 +1,30 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+
 public class BigIntTest {
     final static String FAIL = "FAIL";
     static String[][] constructorTests = {
@@ -47,6 +74,11 @@ public class BigIntTest {
             { "4aa76(34756", FAIL },
             { "", FAIL },
             { null, FAIL },
+            { "-", FAIL },
+            { "+", FAIL },
+            { "+-1", FAIL },
+            { "1+23456789", FAIL },
+            { "12 ", FAIL },
 
     };
 
@@ -71,10 +103,403 @@ public class BigIntTest {
         }
     }
 
+    /*
+    Parses the input of a constructor test from every kind of input the BigInt constructors accept.
+     */
+    static BigInt[] parseAllInputs(String input) {
+        if (input == null) {
+            return new BigInt[] { new BigInt((CharSequence)null), new BigInt((char[])null, 0, 0), new BigInt((byte[])null, 0, 0),
+                    new BigInt((ByteBuffer)null) };
+        }
+        // surround the input with characters that are not a part of it
+        char[] chars = ("9-" + input + "x").toCharArray();
+        byte[] bytes = ("9-" + input + "x").getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).position(2).limit(2 + input.length());
+        BigInt[] results = new BigInt[] {
+                new BigInt(new StringBuilder(input)),
+                new BigInt(chars, 2, input.length()),
+                new BigInt(bytes, 2, input.length()),
+                new BigInt(ByteBuffer.wrap(bytes, 2, input.length())),
+                new BigInt(direct)
+        };
+        if (direct.position() != 2) throw new IllegalStateException("buffer position changed");
+        return results;
+    }
+
+    static void parseInputTests() throws Exception {
+        for (int i = 0; i < constructorTests.length; i++) {
+            System.out.print("parse inputs test " + i + ": ");
+            String[] test = constructorTests[i];
+            if (test[1].equals(FAIL)) {
+                String expectedMessage = null;
+                try {
+                    new BigInt(test[0]);
+                } catch (IllegalArgumentException e) {
+                    expectedMessage = e.getMessage();
+                }
+                boolean failed = false;
+                try {
+                    parseAllInputs(test[0]);
+                } catch (IllegalArgumentException e) {
+                    failed = true;
+                    if (!e.getMessage().equals(expectedMessage)) throw new Exception("wrong message " + e.getMessage());
+                }
+                if (!failed) throw new Exception("should fail but did not");
+            }
+            else {
+                for (BigInt result : parseAllInputs(test[0])) {
+                    if (!(result.toString().equals(test[1]))) throw new Exception("result not equal");
+                }
+            }
+            System.out.println("PASSED");
+        }
+    }
+
+    /*
+    A Reader that returns at most 'step' characters per read, so that the chunks of parse(Reader)
+    end everywhere in the 9 character groups.
+     */
+    static Reader trickleReader(String input, int step) {
+        return new FilterReader(new StringReader(input)) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, step));
+            }
+        };
+    }
+
+    static BigInt[] parseAllStreams(String input) throws IOException {
+        return new BigInt[] {
+                BigInt.parse(new StringReader(input)),
+                BigInt.parse(trickleReader(input, 4)),
+                BigInt.parse(Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII))))
+        };
+    }
+
+    static void parseStreamTests() throws Exception {
+        for (int i = 0; i < constructorTests.length; i++) {
+            System.out.print("parse stream test " + i + ": ");
+            String[] test = constructorTests[i];
+            if (test[0] == null) {
+                System.out.println("PASSED");
+                continue;
+            }
+            if (test[1].equals(FAIL)) {
+                boolean failed = false;
+                try {
+                    parseAllStreams(test[0]);
+                } catch (IllegalArgumentException e) {
+                    failed = true;
+                }
+                if (!failed) throw new Exception("should fail but did not");
+            }
+            else {
+                for (BigInt result : parseAllStreams(test[0])) {
+                    if (!(result.toString().equals(test[1]))) throw new Exception("result not equal");
+                }
+            }
+            System.out.println("PASSED");
+        }
+        // longer than a read chunk, with every length of a partial last group
+        StringBuilder longValue = new StringBuilder("-000000000000");
+        for (int i = 0; i < 10000; i++) {
+            longValue.append(i % 3 == 0 ? "000000000" : i % 3 == 1 ? "000012345" : "987654321");
+        }
+        for (int extra = 0; extra < 9; extra++) {
+            System.out.print("parse stream long test " + extra + ": ");
+            String input = longValue + "123456789".substring(0, extra);
+            BigInt expected = new BigInt(input);
+            for (BigInt result : parseAllStreams(input)) {
+                if (!result.equals(expected)) throw new Exception("result not equal");
+            }
+            System.out.println("PASSED");
+        }
+        System.out.print("parse stream error location test: ");
+        String message = null;
+        try {
+            BigInt.parse(new StringReader("-1234567890x"));
+        } catch (IllegalArgumentException e) {
+            message = e.getMessage();
+        }
+        if (message == null || !message.endsWith("at location 11")) throw new Exception("wrong message " + message);
+        System.out.println("PASSED");
+    }
+
+    static String[][] parseErrorTests = {
+            //  { input, exception message }
+
+            { "", "Input to BigInt constructor was empty or null." },
+            { "-", "Input to BigInt constructor has a sign but no digits." },
+            { "432576(34756", "Attempted to parse as int a non-digit character, in BigInt input 432576(34756 at location 12" },
+            { "-4(2576347561", "Attempted to parse as int a non-digit character, in BigInt input -4(2576347561 at location 4" },
+            { "1+23456789", "Attempted to parse as int a non-digit character, in BigInt input 1+23456789 at location 10" },
+    };
+
+    static void parseErrorTests() throws Exception {
+        for (int i = 0; i < parseErrorTests.length; i++) {
+            System.out.print("parse error test " + i + ": ");
+            String[] test = parseErrorTests[i];
+            String message = null;
+            try {
+                new BigInt(test[0]);
+            } catch (IllegalArgumentException e) {
+                message = e.getMessage();
+            }
+            if (!test[1].equals(message)) throw new Exception("expected message " + test[1] + ", got " + message);
+            System.out.println("PASSED");
+        }
+    }
+
+    static void toStringTests() throws Exception {
+        // long values are written in parallel chunks - check the chunk borders
+        // with a long value, and the short values with the parallel path forced
+        int keepThreshold = BigInt.PARALLEL_TO_STRING_THRESHOLD;
+        try {
+            StringBuilder digits = new StringBuilder("-1");
+            for (int i = 0; i < 20000; i++) {
+                digits.append(i % 3 == 0 ? "000000000" : i % 3 == 1 ? "000012345" : "987654321");
+            }
+            System.out.print("toString long value test: ");
+            if (!new BigInt(digits.toString()).toString().equals(digits.toString())) throw new Exception("result not equal");
+            System.out.println("PASSED");
+
+            BigInt.PARALLEL_TO_STRING_THRESHOLD = 1;
+            System.out.print("toString long value parallel test: ");
+            if (!new BigInt(digits.toString()).toString().equals(digits.toString())) throw new Exception("result not equal");
+            System.out.println("PASSED");
+            System.out.println("parallel toString:");
+            testConstructor();
+        }
+        finally {
+            BigInt.PARALLEL_TO_STRING_THRESHOLD = keepThreshold;
+        }
+    }
+
+    static void writeDecimalTests() throws Exception {
+        // long values are written in chunks - the long value crosses the chunk borders
+        StringBuilder longValue = new StringBuilder("-1");
+        for (int i = 0; i < 20000; i++) {
+            longValue.append(i % 3 == 0 ? "000000000" : i % 3 == 1 ? "000012345" : "987654321");
+        }
+        List<String> values = new ArrayList<>();
+        for (String[] test : constructorTests) {
+            if (!test[1].equals(FAIL)) {
+                values.add(test[1]);
+            }
+        }
+        values.add(longValue.substring(1));
+        values.add(longValue.toString());
+        for (int i = 0; i < values.size(); i++) {
+            System.out.print("writeDecimal test " + i + ": ");
+            String expected = values.get(i);
+            BigInt value = new BigInt(expected);
+            StringBuilder builder = new StringBuilder("x");
+            value.writeDecimal(builder);
+            if (!builder.toString().equals("x" + expected)) throw new Exception("Appendable result not equal");
+            StringWriter writer = new StringWriter();
+            value.writeDecimal(writer);
+            if (!writer.toString().equals(expected)) throw new Exception("Writer result not equal");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            value.writeDecimal(out);
+            if (!out.toString(StandardCharsets.US_ASCII).equals(expected)) throw new Exception("OutputStream result not equal");
+            System.out.println("PASSED");
+        }
+    }
+
+    static String[][] serializationErrorTests = {
+            //  { bytes (in hex), error message }
+            { "", "Truncated BigInt bytes" },
+            { "01 01 0000", "Truncated BigInt bytes" },
+            { "02 01 00000001 00000001", "Unsupported BigInt format version: 2" },
+            { "01 00 00000001 00000001", "Illegal BigInt sign byte: 0" },
+            { "01 01 00000000", "Illegal BigInt digit count: 0" },
+            { "01 01 80000000 00000001", "Illegal BigInt digit count: -2147483648" },
+            { "01 01 00000001 3b9aca00", "Illegal BigInt digit: 1000000000" },
+            { "01 ff 00000002 00000001 ffffffff", "Illegal BigInt digit: -1" },
+            { "01 01 00000002 00000001 00000000", "BigInt digits with a leading zero" },
+            { "01 01 00000002 00000001", "Truncated BigInt bytes" },
+            { "01 01 7fffffff 00000001", "Truncated BigInt bytes" },
+            { "01 01 00000001 00000001 00", "Unexpected bytes after a BigInt" },
+    };
+
+    static byte[] fromHex(String hex) {
+        hex = hex.replace(" ", "");
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte)Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    static void serializationTests() throws Exception {
+        System.out.print("serialization format test: ");
+        if (!Arrays.equals(new BigInt("-1000000002").toByteArray(), fromHex("01 ff 00000002 00000002 00000001")))
+            throw new Exception("wrong bytes");
+        // a negative zero is read as zero
+        if (!BigInt.fromByteArray(fromHex("01 ff 00000001 00000000")).toString().equals("0")) throw new Exception("negative zero");
+        System.out.println("PASSED");
+
+        StringBuilder longValue = new StringBuilder("-");
+        for (int i = 0; i < 40000; i++) {
+            longValue.append(i % 2 == 0 ? "123456789" : "000000000");
+        }
+        List<String> values = new ArrayList<>();
+        for (String[] test : constructorTests) {
+            if (!test[1].equals(FAIL)) {
+                values.add(test[1]);
+            }
+        }
+        values.add(longValue.toString());
+        for (int i = 0; i < values.size(); i++) {
+            System.out.print("serialization test " + i + ": ");
+            BigInt value = new BigInt(values.get(i));
+            String expected = values.get(i);
+            byte[] bytes = value.toByteArray();
+            if (bytes.length != value.serializedLength()) throw new Exception("wrong serialized length");
+            if (!BigInt.fromByteArray(bytes).toString().equals(expected)) throw new Exception("byte array result not equal");
+
+            // between other bytes of a little-endian direct buffer (the format ignores the order)
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 3).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put((byte)7);
+            value.writeTo(buffer);
+            if (buffer.position() != bytes.length + 1) throw new Exception("wrong position after write");
+            buffer.flip().position(1);
+            if (!BigInt.readFrom(buffer).toString().equals(expected)) throw new Exception("buffer result not equal");
+            if (buffer.position() != bytes.length + 1) throw new Exception("wrong position after read");
+
+            // two values in a row through channels
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            WritableByteChannel writeChannel = Channels.newChannel(out);
+            value.writeTo(writeChannel);
+            BigInt.ONE.writeTo(writeChannel);
+            if (!Arrays.equals(Arrays.copyOf(out.toByteArray(), bytes.length), bytes))
+                throw new Exception("channel bytes differ from the byte array");
+            ReadableByteChannel readChannel = Channels.newChannel(new ByteArrayInputStream(out.toByteArray()));
+            if (!BigInt.readFrom(readChannel).toString().equals(expected)) throw new Exception("channel result not equal");
+            if (!BigInt.readFrom(readChannel).toString().equals("1")) throw new Exception("second channel result not equal");
+            System.out.println("PASSED");
+        }
+
+        System.out.print("serialization buffer overflow test: ");
+        boolean overflow = false;
+        ByteBuffer small = ByteBuffer.allocate(9);
+        try {
+            BigInt.ONE.writeTo(small);
+        } catch (BufferOverflowException e) {
+            overflow = true;
+        }
+        if (!overflow || small.position() != 0) throw new Exception("write to a short buffer did not fail cleanly");
+        System.out.println("PASSED");
+
+        for (int i = 0; i < serializationErrorTests.length; i++) {
+            System.out.print("serialization error test " + i + ": ");
+            String[] test = serializationErrorTests[i];
+            String message = null;
+            try {
+                BigInt.fromByteArray(fromHex(test[0]));
+            } catch (IllegalArgumentException e) {
+                message = e.getMessage();
+            }
+            if (!test[1].equals(message)) throw new Exception("expected message " + test[1] + ", got " + message);
+            // a channel reports the truncated values as an EOF, and ignores the bytes after the value
+            ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(fromHex(test[0])));
+            String channelMessage = null;
+            try {
+                BigInt.readFrom(channel);
+            } catch (EOFException e) {
+                channelMessage = "Truncated BigInt bytes";
+            } catch (IllegalArgumentException e) {
+                channelMessage = e.getMessage();
+            }
+            if (!test[1].equals(channelMessage) && !(channelMessage == null && test[1].startsWith("Unexpected")))
+                throw new Exception("expected channel message " + test[1] + ", got " + channelMessage);
+            System.out.println("PASSED");
+        }
+    }
+
     static final String EQUAL = "EQUAL";
     static final String LARGER = "LARGER";
     static final String SMALLER = "SMALLER";
 
+    static long[] valueOfTests = {
+            0, 1, -1, 127, -128, 1024, 1025, -129, 999999999, 1000000000, -1000000000000000000L,
+            999999999999999999L, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1
+    };
+
+    static void valueOfTests() throws Exception {
+        for (int i = 0; i < valueOfTests.length; i++) {
+            System.out.print("valueOf test " + i + ": ");
+            long value = valueOfTests[i];
+            BigInt result = BigInt.valueOf(value);
+            if (!result.toString().equals(Long.toString(value))) throw new Exception("expected " + value + ", got " + result);
+            if (!result.equals(new BigInt(Long.toString(value)))) throw new Exception("not equal to parsed " + value);
+            if (result.longValueExact() != value) throw new Exception("longValueExact " + result.longValueExact());
+            System.out.println("PASSED");
+        }
+        System.out.print("hashCode test: ");
+        // equal values from valueOf, parsing and arithmetic (with longer digit arrays) hash the same
+        String[] hashValues = { "0", "-1", "999999999", "1000000000", "-9223372036854775808", "9223372036854775808",
+                "-123456789012345678901234567890" };
+        for (String value : hashValues) {
+            BigInt parsed = new BigInt(value);
+            BigInt computed = parsed.plus(BigInt.valueOf(1000000007)).minus(BigInt.valueOf(1000000007));
+            BigInt product = parsed.multiply(BigInt.valueOf(1000000000)).divide(BigInt.valueOf(1000000000));
+            if (parsed.hashCode() != computed.hashCode() || parsed.hashCode() != product.hashCode() ||
+                    parsed.hashCode() != parsed.deepCopy().hashCode()) throw new Exception("equal values of " + value + " with different hash codes");
+        }
+        if (BigInt.valueOf(Long.MIN_VALUE).hashCode() != new BigInt("-9223372036854775808").hashCode())
+            throw new Exception("valueOf(Long.MIN_VALUE) with a different hash code");
+        Set<BigInt> set = new HashSet<>();
+        set.add(new BigInt("123456789012345678901234567890"));
+        if (!set.contains(new BigInt("123456789012345678901234567890").plus(BigInt.ZERO))) throw new Exception("not found in a HashSet");
+        System.out.println("PASSED");
+        System.out.print("valueOf cache test: ");
+        if (BigInt.valueOf(100) != BigInt.valueOf(100) || BigInt.valueOf(0) != BigInt.ZERO) {
+            throw new Exception("small values are not cached");
+        }
+        System.out.println("PASSED");
+    }
+
+    static String[][] longValueTests = {
+            //  { value, longValue(), longValueExact() }
+
+            { "0", "0", "0"},
+            { "-999999999999999999", "-999999999999999999", "-999999999999999999"},
+            { "9223372036854775807", "9223372036854775807", "9223372036854775807"},
+            { "-9223372036854775808", "-9223372036854775808", "-9223372036854775808"},
+            { "9223372036854775808", "-9223372036854775808", FAIL},
+            { "-9223372036854775809", "9223372036854775807", FAIL},
+            { "18446744073709551616", "0", FAIL},
+            { "123456789012345678901234567890", "-4362896299872285998", FAIL},
+            { "-123456789012345678901234567890", "4362896299872285998", FAIL}
+    };
+
+    static void longValueTests() throws Exception {
+        for (int i = 0; i < longValueTests.length; i++) {
+            System.out.print("longValue test " + i + ": ");
+            String[] test = longValueTests[i];
+            BigInt value = new BigInt(test[0]);
+            if (value.longValue() != Long.parseLong(test[1])) throw new Exception("expected " + test[1] + ", got " + value.longValue());
+            if (test[2].equals(FAIL)) {
+                boolean failed = false;
+                try {
+                    value.longValueExact();
+                }
+                catch (ArithmeticException ae) {
+                    failed = true;
+                }
+                if (!failed) {
+                    throw new Exception("should fail, but did not.");
+                }
+            }
+            else if (value.longValueExact() != Long.parseLong(test[2])) {
+                throw new Exception("expected exact " + test[2] + ", got " + value.longValueExact());
+            }
+            System.out.println("PASSED");
+        }
+    }
+
     static String[][] compareTests = {
             //  { this, other, result }
 
@@ -152,7 +577,13 @@ public class BigIntTest {
             { "49320587483967834928760984572349", "-34925847562348756298347562984375623847564927568456", "-34925847562348756249026975500407788918803942996107"},
             { "-49320587483967834928760984572349", "-34925847562348756298347562984375623847564927568456", "-34925847562348756347668150468343458776325912140805"},
             { "-34925847562348756298347562984375623847564927568456", "49320587483967834928760984572349", "-34925847562348756249026975500407788918803942996107"},
-            { "-34925847562348756298347562984375623847564927568456", "-49320587483967834928760984572349", "-34925847562348756347668150468343458776325912140805"}
+            { "-34925847562348756298347562984375623847564927568456", "-49320587483967834928760984572349", "-34925847562348756347668150468343458776325912140805"},
+            // around the long range,
+            { "9223372036854775807", "1", "9223372036854775808"},
+            { "-9223372036854775807", "-1", "-9223372036854775808"},
+            { "-9223372036854775807", "-2", "-9223372036854775809"},
+            { "9223372036854775807", "-9223372036854775807", "0"},
+            { "9223372036854775808", "-1", "9223372036854775807"}
     };
 
     static void plusTests() throws Exception {
@@ -168,6 +599,45 @@ public class BigIntTest {
         }
     }
 
+    static void sharedOperandTests() throws Exception {
+        // the same operands are used by several threads at once, for every
+        // combination of signs, and must come out of it unchanged
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int i = 0; i < plusTestsSimple.length; i++) {
+                System.out.print("shared operand test " + i + ": ");
+                String[] test = plusTestsSimple[i];
+                BigInt first = new BigInt(test[0]);
+                BigInt second = new BigInt(test[1]);
+                BigInt expected = new BigInt(test[2]);
+                List<ForkJoinTask<Boolean>> tasks = new ArrayList<>();
+                for (int task = 0; task < 8; task++) {
+                    tasks.add(pool.submit(() -> {
+                        boolean correct = true;
+                        for (int repeat = 0; repeat < 100; repeat++) {
+                            correct &= first.plus(second).equals(expected);
+                            correct &= second.plus(first).equals(expected);
+                            correct &= expected.minus(second).equals(first);
+                            correct &= expected.minus(first).equals(second);
+                        }
+                        return correct;
+                    }));
+                }
+                for (ForkJoinTask<Boolean> task : tasks) {
+                    if (!task.join()) throw new Exception("wrong result for a shared operand");
+                }
+                if (!first.toString().equals(new BigInt(test[0]).toString())
+                        || !second.toString().equals(new BigInt(test[1]).toString())) {
+                    throw new Exception("operands changed to " + first + ", " + second);
+                }
+                System.out.println("PASSED");
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
     static String[][] minusTestsSimple = {
             //  { value, add, result }
             // since the backbone of this is the same
@@ -189,7 +659,11 @@ public class BigIntTest {
             { "900000000000000000", "900000000000000000", "0"},
             { "2345897634587298769325", "-2345897634587298769325", "4691795269174597538650"},
             { "-2345897634587298769325", "2345897634587298769325", "-4691795269174597538650"},
-            { "2384572698475238475264264", "34967520520948720982845982342934734", "-34967520518564148284370743867670470"}
+            { "2384572698475238475264264", "34967520520948720982845982342934734", "-34967520518564148284370743867670470"},
+            // around the long range,
+            { "-9223372036854775807", "1", "-9223372036854775808"},
+            { "9223372036854775807", "-9223372036854775807", "18446744073709551614"},
+            { "-9223372036854775808", "-1", "-9223372036854775807"}
     };
 
     static void minusTests() throws Exception {
@@ -205,6 +679,107 @@ public class BigIntTest {
         }
     }
 
+    static String[][] mutableTests = {
+            //  { value, operation, operand, shift, result }
+
+            { "0", "add", "123", "0", "123"},
+            { "5", "add", "-7", "0", "-2"},
+            { "-5", "add", "-7", "0", "-12"},
+            { "999999999999999999", "add", "1", "0", "1000000000000000000"},
+            { "1", "add", "1", "2", "1000000000000000001"},
+            { "1", "add", "-1", "1", "-999999999"},
+            { "-1", "add", "1", "2", "999999999999999999"},
+            { "123", "subtract", "123", "0", "0"},
+            { "123", "subtract", "124", "0", "-1"},
+            { "1000000000000000000", "subtract", "1", "0", "999999999999999999"},
+            { "1", "subtract", "1", "2", "-999999999999999999"},
+            { "5", "subtract", "5", "1", "-4999999995"},
+            { "-5", "subtract", "-1", "1", "999999995"},
+            { "1000000000000000000000000000", "subtract", "999999999", "1", "999999999000000001000000000"},
+            { "123456789", "multiplyByInt", "0", "0", "0"},
+            { "999999999999999999", "multiplyByInt", "2147483647", "0", "2147483646999999997852516353"},
+            { "999999999999999999", "multiplyByInt", "-2147483648", "0", "-2147483647999999997852516352"},
+            { "-5", "multiplyByInt", "-3", "0", "15"},
+            { "123", "shift", "2", "0", "123000000000000000000"},
+            { "-123456789012345678901234567890", "shift", "-1", "0", "-123456789012345678901"},
+            { "-123456789012345678901234567890", "shift", "-4", "0", "0"},
+            { "0", "shift", "3", "0", "0"}
+    };
+
+    static void mutableTests() throws Exception {
+        for (int i = 0; i < mutableTests.length; i++) {
+            System.out.print("MutableBigInt test " + i + ": ");
+            String[] test = mutableTests[i];
+            BigInt value = new BigInt(test[0]);
+            MutableBigInt mutable = new MutableBigInt(value);
+            BigInt before = mutable.toBigInt();
+            int shift = Integer.parseInt(test[3]);
+            switch (test[1]) {
+                case "add" -> mutable.add(new BigInt(test[2]), shift);
+                case "subtract" -> mutable.subtract(new BigInt(test[2]), shift);
+                case "multiplyByInt" -> mutable.multiplyByInt(Integer.parseInt(test[2]));
+                case "shift" -> mutable.shift(Integer.parseInt(test[2]));
+            }
+            BigInt expected = new BigInt(test[4]);
+            BigInt result = mutable.toBigInt();
+            if (!result.equals(expected)) throw new Exception("expected " + expected + ", got " + result);
+            if (mutable.signum() != expected.compareTo(BigInt.ZERO)) throw new Exception("signum " + mutable.signum());
+            // the snapshot taken before the operation keeps its value
+            if (!before.equals(value)) throw new Exception("snapshot changed to " + before);
+            System.out.println("PASSED");
+        }
+
+        System.out.print("MutableBigInt sum test: ");
+        MutableBigInt sum = new MutableBigInt();
+        BigInt expected = BigInt.ZERO;
+        for (String[] test : plusTestsSimple) {
+            for (String value : test) {
+                sum.add(new BigInt(value)).multiplyByInt(-3);
+                expected = expected.plus(new BigInt(value)).multiply(BigInt.valueOf(-3));
+            }
+        }
+        if (!sum.toBigInt().equals(expected)) throw new Exception("expected " + expected + ", got " + sum);
+        System.out.println("PASSED");
+    }
+
+    static String[][] vectorTests = {
+            //  { value, add, result }
+            // long enough for whole vectors of digits, with carries and borrows crossing lanes
+
+            { "999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999", "1", "1000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000"},
+            { "999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999", "999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999", "1999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999998"},
+            { "999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999000000001999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999", "1000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000", "999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999000000002999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999"},
+            { "999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999000000001999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999", "1000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000001", "1000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000999999999999999999999999999999999999000000002000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000"},
+            { "526018159083016613186091390996030824628194821993518190937865797543231948757491186252760189555979711471049746507529170342366712768426846563212233079244026859952890786666176031372159010928159013962459571177774121547280385280841485253888539336338750047439575513137353799075116372651676122202972997528820", "90009090999009990009000009009900009009009909990909090999009009009090900990009999099090999099900000990090999099090090900900090909990000090009909909909000090909999009009900009900099090900990999900909009909900009009090990009990900900000009099000990900099090009990990000999009099009999990090", "526018159083106622277090400986039824637204722002527200847856706634230957766500277153750199555078802470149646508519261341465802859327746654122223079334036769862799786757086030381168910938059113053360562177675030557190285289850576243898530237238750056538576504037452889085107362652675131301982997518910"},
+            { "500000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000", "499999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999991", "999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999999991"}
+    };
+
+    static void vectorTests() throws Exception {
+        // the vectorized addition and subtraction are only available with the jdk.incubator.vector
+        // module (see VectorMagnitudes) - otherwise this tests the scalar loops again
+        int keepThreshold = BigInt.VECTOR_THRESHOLD;
+        try {
+            BigInt.VECTOR_THRESHOLD = 1;
+            System.out.println("vector kernels: " + (BigInt.VECTOR_KERNELS == null ? "not available" : "available"));
+            for (int i = 0; i < vectorTests.length; i++) {
+                System.out.print("vector test " + i + ": ");
+                String[] test = vectorTests[i];
+                BigInt first = new BigInt(test[0]);
+                BigInt second = new BigInt(test[1]);
+                BigInt sum = new BigInt(test[2]);
+                if (!first.plus(second).toString().equals(test[2])) throw new Exception("expected " + sum + ", got " + first.plus(second));
+                if (!sum.minus(second).toString().equals(test[0])) throw new Exception("expected " + first + ", got " + sum.minus(second));
+                if (!sum.minus(first).toString().equals(test[1])) throw new Exception("expected " + second + ", got " + sum.minus(first));
+                System.out.println("PASSED");
+            }
+            plusTests();
+            minusTests();
+        }
+        finally {
+            BigInt.VECTOR_THRESHOLD = keepThreshold;
+        }
+    }
+
     static String[][] multiplyTestsSimple = {
             //  { value, add, result }
 
@@ -241,7 +816,12 @@ public class BigIntTest {
             { "1029131786219368217359117779022938857716221441984868183907004638862030608940295036497830628411994858569", "1029131786219368217359117779022938857716221441984868183907004638862030608940295036497830628411994858569", "1059112233407067406692972581407777946104079485367582281840582337001040018820488549650736705266754488400358738452491369237476684619042795869299042110022853606958724471172151228987229486092666151290312727761"},
             { "4858569", "1029131786219368217359117779022938857716221441984868183907004638862030608940295036497830628411994858569", "5000107793440049620446271508509701022995444295162979027416871621231257193648440315182228458453037448002727761"},
             { "-4858569", "1029131786219368217359117779022938857716221441984868183907004638862030608940295036497830628411994858569", "-5000107793440049620446271508509701022995444295162979027416871621231257193648440315182228458453037448002727761"},
-            { "-4858569", "-10000000000000000000000000000000000000000000000000000000000", "48585690000000000000000000000000000000000000000000000000000000000"}
+            { "-4858569", "-10000000000000000000000000000000000000000000000000000000000", "48585690000000000000000000000000000000000000000000000000000000000"},
+            // around the long range,
+            { "4294967296", "2147483647", "9223372032559808512"},
+            { "4294967296", "2147483648", "9223372036854775808"},
+            { "-4294967296", "2147483648", "-9223372036854775808"},
+            { "-3037000500", "3037000500", "-9223372037000250000"}
     };
 
     static void multiplyTests() throws Exception {
@@ -257,6 +837,391 @@ public class BigIntTest {
         }
     }
 
+    static void multiplyAlgorithmTests() throws Exception {
+        // karatsuba's and Toom-Cook's methods only kick in for large values, so the test
+        // values are multiplied again with the thresholds lowered to their minimum
+        int keepKaratsuba = BigInt.KARATSUBA_THRESHOLD;
+        int keepToomCook = BigInt.TOOM_COOK_THRESHOLD;
+        int keepNtt = BigInt.NTT_THRESHOLD;
+        int keepUnbalanced = BigInt.UNBALANCED_RATIO;
+        try {
+            BigInt.KARATSUBA_THRESHOLD = 4;
+            BigInt.TOOM_COOK_THRESHOLD = Integer.MAX_VALUE;
+            System.out.println("karatsuba multiplication:");
+            multiplyTests();
+            BigInt.TOOM_COOK_THRESHOLD = 6;
+            System.out.println("Toom-Cook multiplication:");
+            multiplyTests();
+            BigInt.NTT_THRESHOLD = 1;
+            System.out.println("number theoretic transform multiplication:");
+            multiplyTests();
+            BigInt.NTT_THRESHOLD = keepNtt;
+
+            // all the algorithms must agree on long values
+            for (int i = 1; i < 400; i += 37) {
+                StringBuilder firstDigits = new StringBuilder();
+                StringBuilder secondDigits = new StringBuilder("-");
+                for (int j = 0; j < i; j++) {
+                    firstDigits.append(j % 7 == 0 ? "999999999" : "123456789");
+                    secondDigits.append(j % 3 == 0 ? "000000001" : "987654321");
+                }
+                BigInt first = new BigInt(firstDigits.toString());
+                BigInt second = new BigInt(secondDigits.toString());
+                System.out.print("multiply algorithms test " + i + ": ");
+                BigInt.KARATSUBA_THRESHOLD = Integer.MAX_VALUE;
+                BigInt expected = first.multiply(second);
+                BigInt.KARATSUBA_THRESHOLD = 4;
+                BigInt.TOOM_COOK_THRESHOLD = Integer.MAX_VALUE;
+                BigInt karatsubaResult = first.multiply(second);
+                BigInt.TOOM_COOK_THRESHOLD = 6;
+                BigInt toomCookResult = first.multiply(second);
+                BigInt.NTT_THRESHOLD = 1;
+                BigInt nttResult = first.multiply(second);
+                BigInt.NTT_THRESHOLD = keepNtt;
+                if (!expected.equals(karatsubaResult)) throw new Exception("karatsuba: expected " + expected + ", got " + karatsubaResult);
+                if (!expected.equals(toomCookResult)) throw new Exception("Toom-Cook: expected " + expected + ", got " + toomCookResult);
+                if (!expected.equals(nttResult)) throw new Exception("NTT: expected " + expected + ", got " + nttResult);
+                System.out.println("PASSED");
+            }
+
+            // and on factors of very different lengths, which are multiplied in blocks
+            // of the shorter one's length (or split by the longer, with UNBALANCED_RATIO off)
+            for (int ratio : new int[] { 2, 3, 10, 64 }) {
+                StringBuilder firstDigits = new StringBuilder();
+                StringBuilder secondDigits = new StringBuilder();
+                for (int j = 0; j < 6 * ratio + 1; j++) {
+                    firstDigits.append(j % 5 == 0 ? "999999999" : "314159265");
+                }
+                for (int j = 0; j < 6; j++) {
+                    secondDigits.append(j % 2 == 0 ? "999999999" : "271828182");
+                }
+                BigInt first = new BigInt(firstDigits.toString());
+                BigInt second = new BigInt(secondDigits.toString());
+                System.out.print("unbalanced multiplication test " + ratio + ": ");
+                BigInt.KARATSUBA_THRESHOLD = Integer.MAX_VALUE;
+                BigInt expected = first.multiply(second);
+                BigInt.KARATSUBA_THRESHOLD = 4;
+                for (int toomCook : new int[] { Integer.MAX_VALUE, 6 }) {
+                    BigInt.TOOM_COOK_THRESHOLD = toomCook;
+                    BigInt blocks = first.multiply(second);
+                    BigInt.UNBALANCED_RATIO = Integer.MAX_VALUE;
+                    BigInt split = second.multiply(first);
+                    BigInt.UNBALANCED_RATIO = keepUnbalanced;
+                    if (!expected.equals(blocks)) throw new Exception("blocks: expected " + expected + ", got " + blocks);
+                    if (!expected.equals(split)) throw new Exception("split: expected " + expected + ", got " + split);
+                }
+                System.out.println("PASSED");
+            }
+        }
+        finally {
+            BigInt.KARATSUBA_THRESHOLD = keepKaratsuba;
+            BigInt.TOOM_COOK_THRESHOLD = keepToomCook;
+            BigInt.NTT_THRESHOLD = keepNtt;
+            BigInt.UNBALANCED_RATIO = keepUnbalanced;
+        }
+    }
+
+    static void multiplyParallelTests() throws Exception {
+        // split every multiplication into tasks, on a pool of a few threads
+        int keepParallel = BigInt.PARALLEL_THRESHOLD;
+        int keepKaratsuba = BigInt.KARATSUBA_THRESHOLD;
+        int keepToomCook = BigInt.TOOM_COOK_THRESHOLD;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BigInt.PARALLEL_THRESHOLD = 1;
+            for (int[] thresholds : new int[][] { { 4, Integer.MAX_VALUE }, { 4, 6 } }) {
+                BigInt.KARATSUBA_THRESHOLD = thresholds[0];
+                BigInt.TOOM_COOK_THRESHOLD = thresholds[1];
+                for (int i = 0; i < multiplyTestsSimple.length; i++) {
+                    System.out.print("multiplyParallel test " + i + ": ");
+                    String[] test = multiplyTestsSimple[i];
+                    BigInt first = new BigInt(test[0]);
+                    BigInt second = new BigInt(test[1]);
+                    BigInt expected = new BigInt(test[2]);
+                    BigInt result = first.multiplyParallel(second, pool);
+                    if (!result.equals(expected)) throw new Exception("expected " + expected + ", got " + result);
+                    result = first.multiplyParallel(second);
+                    if (!result.equals(expected)) throw new Exception("common pool: expected " + expected + ", got " + result);
+                    System.out.println("PASSED");
+                }
+            }
+        }
+        finally {
+            pool.shutdown();
+            BigInt.PARALLEL_THRESHOLD = keepParallel;
+            BigInt.KARATSUBA_THRESHOLD = keepKaratsuba;
+            BigInt.TOOM_COOK_THRESHOLD = keepToomCook;
+        }
+    }
+
+    static String[][] multiplyAddTests = {
+            //  { first, second, addend, first * second + addend }
+
+            { "0", "5", "7", "7"},
+            { "3", "4", "5", "17"},
+            { "-3", "4", "5", "-7"},
+            { "3", "-4", "12", "0"},
+            { "-3", "-4", "-12", "0"},
+            { "999999999", "999999999", "1", "999999998000000002"},
+            { "9223372036854775807", "2", "-9223372036854775807", "9223372036854775807"},
+            { "-9223372036854775808", "-1", "-1", "9223372036854775807"},
+            { "123456789012345678901234567890", "987654321098765432109876543210", "-121932631137021795226185032733622923332237463801111263526900", "0"},
+            { "9999999999999999999999999999999999999999", "9999999999999999999999999999999999999999", "19999999999999999999999999999999999999998", "99999999999999999999999999999999999999999999999999999999999999999999999999999999"}
+    };
+
+    static void multiplyAddTests() throws Exception {
+        for (int i = 0; i < multiplyAddTests.length; i++) {
+            System.out.print("multiplyAdd test " + i + ": ");
+            String[] test = multiplyAddTests[i];
+            BigInt result = BigInt.multiplyAdd(new BigInt(test[0]), new BigInt(test[1]), new BigInt(test[2]));
+            if (!result.toString().equals(test[3])) throw new Exception("expected " + test[3] + ", got " + result);
+            System.out.println("PASSED");
+        }
+
+        // the dot product of the multiplication table's factors, against the sum of their products
+        // (the products of the long factors are added, and the rest are accumulated in place)
+        int keepKaratsuba = BigInt.KARATSUBA_THRESHOLD;
+        int keepParallelDot = BigInt.PARALLEL_DOT_THRESHOLD;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BigInt[] firsts = new BigInt[multiplyTestsSimple.length];
+            BigInt[] seconds = new BigInt[multiplyTestsSimple.length];
+            BigInt expected = BigInt.ZERO;
+            for (int i = 0; i < multiplyTestsSimple.length; i++) {
+                firsts[i] = new BigInt(multiplyTestsSimple[i][0]);
+                // alternate the signs of the products
+                seconds[i] = i % 3 == 0 ? BigInt.ZERO.minus(new BigInt(multiplyTestsSimple[i][1])) : new BigInt(multiplyTestsSimple[i][1]);
+                expected = expected.plus(firsts[i].multiply(seconds[i]));
+            }
+            BigInt.PARALLEL_DOT_THRESHOLD = 1;
+            for (int karatsuba : new int[] { keepKaratsuba, 4 }) {
+                BigInt.KARATSUBA_THRESHOLD = karatsuba;
+                System.out.print("dot test (karatsuba threshold " + karatsuba + "): ");
+                BigInt dot = BigInt.dot(firsts, seconds);
+                BigInt parallel = BigInt.dotParallel(firsts, seconds, pool);
+                if (!dot.equals(expected)) throw new Exception("expected " + expected + ", got " + dot);
+                if (!parallel.equals(expected)) throw new Exception("parallel: expected " + expected + ", got " + parallel);
+                System.out.println("PASSED");
+            }
+            System.out.print("dot test (empty): ");
+            if (!BigInt.dot(new BigInt[0], new BigInt[0]).equals(BigInt.ZERO)) throw new Exception("expected 0");
+            System.out.println("PASSED");
+            System.out.print("dot test (different lengths): ");
+            boolean failed = false;
+            try {
+                BigInt.dot(firsts, new BigInt[1]);
+            }
+            catch (IllegalArgumentException e) {
+                failed = true;
+            }
+            if (!failed) throw new Exception("should fail but did not");
+            System.out.println("PASSED");
+        }
+        finally {
+            BigInt.KARATSUBA_THRESHOLD = keepKaratsuba;
+            BigInt.PARALLEL_DOT_THRESHOLD = keepParallelDot;
+            pool.shutdown();
+        }
+    }
+
+    static String[][] factorialTests = {
+            //  { n, n! }
+
+            { "0", "1"},
+            { "1", "1"},
+            { "2", "2"},
+            { "5", "120"},
+            { "20", "2432902008176640000"},
+            { "21", "51090942171709440000"},
+            { "25", "15511210043330985984000000"},
+            { "30", "265252859812191058636308480000000"},
+            { "-1", FAIL}
+    };
+
+    static void reduceTests() throws Exception {
+        // sums and products of the values of the plus and multiplication tables, against folding them
+        int keepKaratsuba = BigInt.KARATSUBA_THRESHOLD;
+        int keepReduce = BigInt.PARALLEL_REDUCE_THRESHOLD;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<BigInt> addends = new ArrayList<>();
+            BigInt expectedSum = BigInt.ZERO;
+            for (String[] test : plusTestsSimple) {
+                for (String value : test) {
+                    addends.add(new BigInt(value));
+                    expectedSum = expectedSum.plus(new BigInt(value));
+                }
+            }
+            List<BigInt> factors = new ArrayList<>();
+            BigInt expectedProduct = BigInt.ONE;
+            for (String[] test : multiplyTestsSimple) {
+                // no zeros, so that the product is not cut short
+                if (!test[0].equals("0")) {
+                    factors.add(new BigInt(test[0]));
+                    expectedProduct = expectedProduct.multiply(new BigInt(test[0]));
+                }
+            }
+            BigInt.PARALLEL_REDUCE_THRESHOLD = 2;
+            for (int karatsuba : new int[] { keepKaratsuba, 4 }) {
+                BigInt.KARATSUBA_THRESHOLD = karatsuba;
+                System.out.print("sum and product test (karatsuba threshold " + karatsuba + "): ");
+                BigInt[] sums = { BigInt.sum(addends), BigInt.sumParallel(addends, pool),
+                        addends.stream().collect(BigInt.summing()), addends.parallelStream().collect(BigInt.summing()) };
+                for (BigInt sum : sums) {
+                    if (!sum.equals(expectedSum)) throw new Exception("sum: expected " + expectedSum + ", got " + sum);
+                }
+                BigInt[] products = { BigInt.product(factors), BigInt.productParallel(factors, pool),
+                        factors.stream().collect(BigInt.multiplying()), factors.parallelStream().collect(BigInt.multiplying()) };
+                for (BigInt product : products) {
+                    if (!product.equals(expectedProduct)) throw new Exception("product: expected " + expectedProduct + ", got " + product);
+                }
+                System.out.println("PASSED");
+            }
+            BigInt.KARATSUBA_THRESHOLD = keepKaratsuba;
+            System.out.print("sum and product test (empty): ");
+            if (!BigInt.sum(List.of()).equals(BigInt.ZERO) || !BigInt.product(List.of()).equals(BigInt.ONE)) {
+                throw new Exception("expected 0 and 1");
+            }
+            System.out.println("PASSED");
+
+            for (int i = 0; i < factorialTests.length; i++) {
+                System.out.print("factorial test " + i + ": ");
+                String[] test = factorialTests[i];
+                int n = Integer.parseInt(test[0]);
+                if (test[1].equals(FAIL)) {
+                    boolean failed = false;
+                    try {
+                        BigInt.factorial(n);
+                    }
+                    catch (ArithmeticException e) {
+                        failed = true;
+                    }
+                    if (!failed) throw new Exception("should fail but did not");
+                }
+                else if (!BigInt.factorial(n).toString().equals(test[1]) || !BigInt.factorialParallel(n, pool).toString().equals(test[1])) {
+                    throw new Exception("expected " + test[1] + ", got " + BigInt.factorial(n));
+                }
+                System.out.println("PASSED");
+            }
+            System.out.print("factorial test 1000: ");
+            BigInt expected = BigInt.ONE;
+            for (int i = 2; i <= 1000; i++) {
+                expected = expected.multiply(i);
+            }
+            if (!BigInt.factorial(1000).equals(expected) || !BigInt.factorialParallel(1000, pool).equals(expected)) {
+                throw new Exception("expected " + expected + ", got " + BigInt.factorial(1000));
+            }
+            System.out.println("PASSED");
+        }
+        finally {
+            BigInt.KARATSUBA_THRESHOLD = keepKaratsuba;
+            BigInt.PARALLEL_REDUCE_THRESHOLD = keepReduce;
+            pool.shutdown();
+        }
+    }
+
+    static String[][] squareTests = {
+            //  { value, result }
+
+            { "0", "0"},
+            { "-1", "1"},
+            { "999999999", "999999998000000001"},
+            { "1000000000", "1000000000000000000"},
+            { "-999999999999999999", "999999999999999998000000000000000001"},
+            { "123456789012345678901234567890", "15241578753238836750495351562536198787501905199875019052100"},
+            { "55555555555555555555555555555555", "3086419753086419753086419753086358024691358024691358024691358025"},
+            { "-3037000499", "9223372030926249001"},
+            { "3037000500", "9223372037000250000"},
+    };
+
+    static void squareTests() throws Exception {
+        for (int i = 0; i < squareTests.length; i++) {
+            System.out.print("square test " + i + ": ");
+            String[] test = squareTests[i];
+            BigInt value = new BigInt(test[0]);
+            BigInt expected = new BigInt(test[1]);
+            BigInt result = value.square();
+            if (!result.equals(expected)) throw new Exception("expected " + expected + ", got " + result);
+            result = value.multiply(value);
+            if (!result.equals(expected)) throw new Exception("multiply by itself: expected " + expected + ", got " + result);
+            System.out.println("PASSED");
+        }
+
+        // the squaring algorithms must agree with the multiplication on long values
+        int keepKaratsuba = BigInt.KARATSUBA_SQUARE_THRESHOLD;
+        int keepToomCook = BigInt.TOOM_COOK_SQUARE_THRESHOLD;
+        try {
+            for (int i = 1; i < 400; i += 37) {
+                StringBuilder digits = new StringBuilder();
+                for (int j = 0; j < i; j++) {
+                    digits.append(j % 5 == 0 ? "999999999" : "192837465");
+                }
+                BigInt value = new BigInt(digits.toString());
+                BigInt expected = value.multiply(value.deepCopy());
+                System.out.print("square algorithms test " + i + ": ");
+                BigInt.KARATSUBA_SQUARE_THRESHOLD = 4;
+                BigInt.TOOM_COOK_SQUARE_THRESHOLD = Integer.MAX_VALUE;
+                BigInt karatsubaResult = value.square();
+                BigInt.TOOM_COOK_SQUARE_THRESHOLD = 4;
+                BigInt toomCookResult = value.square();
+                if (!expected.equals(karatsubaResult)) throw new Exception("karatsuba: expected " + expected + ", got " + karatsubaResult);
+                if (!expected.equals(toomCookResult)) throw new Exception("Toom-Cook: expected " + expected + ", got " + toomCookResult);
+                BigInt.KARATSUBA_SQUARE_THRESHOLD = keepKaratsuba;
+                BigInt.TOOM_COOK_SQUARE_THRESHOLD = keepToomCook;
+                System.out.println("PASSED");
+            }
+        }
+        finally {
+            BigInt.KARATSUBA_SQUARE_THRESHOLD = keepKaratsuba;
+            BigInt.TOOM_COOK_SQUARE_THRESHOLD = keepToomCook;
+        }
+    }
+
+    static String[][] powTests = {
+            //  { value, exponent, result }
+
+            { "0", "-1", FAIL},
+            { "0", "0", "1"},
+            { "0", "5", "0"},
+            { "7", "0", "1"},
+            { "-7", "0", "1"},
+            { "-7", "1", "-7"},
+            { "2", "10", "1024"},
+            { "2", "64", "18446744073709551616"},
+            { "-2", "63", "-9223372036854775808"},
+            { "-3", "40", "12157665459056928801"},
+            { "1000000000", "3", "1000000000000000000000000000"},
+            { "999999999", "5", "999999995000000009999999990000000004999999999"},
+            { "-123456789", "7", "-437124189620885610010004822109262358637075660656881926429"},
+            { "10", "100", "10000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000"},
+    };
+
+    static void powTests() throws Exception {
+        for (int i = 0; i < powTests.length; i++) {
+            System.out.print("pow test " + i + ": ");
+            String[] test = powTests[i];
+            BigInt value = new BigInt(test[0]);
+            int exponent = Integer.parseInt(test[1]);
+            if (test[2].equals(FAIL)) {
+                boolean failed = false;
+                try {
+                    value.pow(exponent);
+                }
+                catch (ArithmeticException ae) {
+                    failed = true;
+                }
+                if (!failed) throw new Exception("should fail, but did not.");
+            }
+            else {
+                BigInt expected = new BigInt(test[2]);
+                BigInt result = value.pow(exponent);
+                if (!result.equals(expected)) throw new Exception("expected " + expected + ", got " + result);
+                if (!value.equals(new BigInt(test[0]))) throw new Exception("value changed to " + value);
+            }
+            System.out.println("PASSED");
+        }
+    }
+
     static String[][] div2tests = {
             //  { value, result }
             { "5", "2"},
@@ -265,6 +1230,8 @@ public class BigIntTest {
             { "103", "51"},
             { "999999999", "499999999"},
             { "1000000000", "500000000"},
+            { "-5", "-2"},
+            { "2000000000000000000000000000000000001", "1000000000000000000000000000000000000"},
     };
 
     static void divBy2Tests() throws Exception {
@@ -279,6 +1246,70 @@ public class BigIntTest {
         }
     }
 
+    static String[][] intTests = {
+            //  { value, int, value * int, value / int, value % int }
+
+            { "0", "7", "0", "0", "0"},
+            { "0", "-7", "0", "0", "0"},
+            { "7", "0", "0", FAIL, FAIL},
+            { "7", "2", "14", "3", "1"},
+            { "-7", "2", "-14", "-3", "-1"},
+            { "7", "-2", "-14", "-3", "1"},
+            { "-7", "-2", "14", "3", "-1"},
+            { "999999999", "1000000000", "999999999000000000", "0", "999999999"},
+            { "9223372036854775807", "2", "18446744073709551614", "4611686018427387903", "1"},
+            { "-9223372036854775808", "-1", "9223372036854775808", "9223372036854775808", "0"},
+            { "-9223372036854775808", "2147483647", "-19807040619342712361531211776", "-4294967298", "-2"},
+            { "123456789012345678901234567890", "2147483647", "265121435515141626551514162654886294830", "57489047325139272132", "281742486"},
+            { "123456789012345678901234567890", "-2147483648", "-265121435638598415563859841556120862720", "-57489047298368848348", "1312754386"},
+            { "-1000000000000000000000000000000000000", "3", "-3000000000000000000000000000000000000", "-333333333333333333333333333333333333", "-1"},
+            { "999999999999999999999999999999999999999999999", "999999999", "999999998999999999999999999999999999999999999000000001", "1000000001000000001000000001000000001", "0"}
+    };
+
+    static void intTests() throws Exception {
+        // every operation by an int is compared with the same operation by the int as a BigInt
+        for (int i = 0; i < intTests.length; i++) {
+            System.out.print("int test " + i + ": ");
+            String[] test = intTests[i];
+            BigInt value = new BigInt(test[0]);
+            int factor = Integer.parseInt(test[1]);
+            BigInt product = value.multiply(factor);
+            if (!product.toString().equals(test[2])) throw new Exception("multiply: expected " + test[2] + ", got " + product);
+            if (!product.equals(value.multiply(new BigInt(test[1])))) throw new Exception("multiply does not match multiply(BigInt)");
+            if (test[3].equals(FAIL)) {
+                for (int operation = 0; operation < 3; operation++) {
+                    boolean failed = false;
+                    try {
+                        switch (operation) {
+                            case 0 -> value.divide(factor);
+                            case 1 -> value.remainder(factor);
+                            default -> value.divideAndRemainder(factor);
+                        }
+                    }
+                    catch (ArithmeticException ae) {
+                        failed = true;
+                    }
+                    if (!failed) throw new Exception("should fail, but did not.");
+                }
+            }
+            else {
+                BigInt quotient = value.divide(factor);
+                int remainder = value.remainder(factor);
+                BigInt[] both = value.divideAndRemainder(factor);
+                if (!quotient.toString().equals(test[3])) throw new Exception("divide: expected " + test[3] + ", got " + quotient);
+                if (!Integer.toString(remainder).equals(test[4])) throw new Exception("remainder: expected " + test[4] + ", got " + remainder);
+                if (!both[0].equals(quotient) || !both[1].toString().equals(test[4])) {
+                    throw new Exception("divideAndRemainder: expected " + test[3] + ", " + test[4] + ", got " + both[0] + ", " + both[1]);
+                }
+                BigInt[] expected = value.divideAndRemainder(new BigInt(test[1]));
+                if (!both[0].equals(expected[0]) || !both[1].equals(expected[1])) {
+                    throw new Exception("divideAndRemainder does not match divideAndRemainder(BigInt)");
+                }
+            }
+            System.out.println("PASSED");
+        }
+    }
+
     static String[][] divideTestsSimple = {
             //  { value, add, result }
 
@@ -373,6 +1404,136 @@ public class BigIntTest {
         }
     }
 
+    static String[][] divideAndRemainderTests = {
+            //  { value, divisor, quotient, remainder }
+
+            { "0", "0", FAIL, FAIL},
+            { "7", "0", FAIL, FAIL},
+            { "0", "7", "0", "0"},
+            { "7", "2", "3", "1"},
+            { "-7", "2", "-3", "-1"},
+            { "7", "-2", "-3", "1"},
+            { "-7", "-2", "3", "-1"},
+            { "3", "12", "0", "3"},
+            { "-3", "12", "0", "-3"},
+            { "1000000000", "999999999", "1", "1"},
+            { "999999999999999999999999999", "1000000000", "999999999999999999", "999999999"},
+            { "1000000000000000000000000000", "999999999999999999", "1000000000", "1000000000"},
+            { "1000000000000000000000000000", "500000000000000001", "1999999999", "499999998000000001"},
+            { "123456789012345678901234567890", "9876543210987654321", "12499999886", "925925941327160484"},
+            { "9999999999999999999800000000000000000000000000000001", "99999999999999999999999999", "99999999999999999998000000", "99999999999999999998000001"},
+            { "1029131786219368217359117779022938857716221441984868183907004638862030608940295036497830628411994858570", "4387529684764836294576340762534975623487", "234558364309853742094587234863704968275094856723094587349229687", "1"},
+            { "-1029131786219368217359117779022938857716221441984868183907004638862030608940295036497830628411994858570", "4387529684764836294576340762534975623487", "-234558364309853742094587234863704968275094856723094587349229687", "-1"},
+            { "-9223372036854775807", "-1", "9223372036854775807", "0"},
+            { "-9223372036854775808", "-1", "9223372036854775808", "0"},
+            { "-9223372036854775807", "1000000000000", "-9223372", "-36854775807"}
+    };
+
+    static void divideAndRemainderTests() throws Exception {
+        // quotient * divisor + remainder must always give back the value
+        for (int i = -99; i < 99; i++) {
+            BigInt I = new BigInt(Integer.toString(i));
+            for (int j = -30; j < 30; j++) {
+                if (j == 0) continue;
+                BigInt J = new BigInt(Integer.toString(j));
+                BigInt[] result = I.divideAndRemainder(J);
+                if (!result[0].toString().equals(Integer.toString(i / j)) ||
+                        !result[1].toString().equals(Integer.toString(i % j))) {
+                    throw new Exception("expected " + (i / j) + ", " + (i % j) + ", got " + result[0] + ", " + result[1]);
+                }
+            }
+        }
+        System.out.println("small integers divideAndRemainder test - PASSED");
+
+        for (int i = 0; i < divideAndRemainderTests.length; i++) {
+            System.out.print("divideAndRemainder test " + i + ": ");
+            String[] test = divideAndRemainderTests[i];
+            BigInt first = new BigInt(test[0]);
+            BigInt second = new BigInt(test[1]);
+            if (test[2].equals(FAIL)) {
+                boolean failed = false;
+                try {
+                    first.divideAndRemainder(second);
+                }
+                catch (ArithmeticException ae) {
+                    failed = true;
+                }
+                if (!failed) {
+                    throw new Exception("should fail, but did not.");
+                }
+            }
+            else {
+                BigInt[] result = first.divideAndRemainder(second);
+                if (!result[0].equals(new BigInt(test[2])) || !result[1].equals(new BigInt(test[3]))) {
+                    throw new Exception("expected " + test[2] + ", " + test[3] + ", got " + result[0] + ", " + result[1]);
+                }
+                if (!result[0].multiply(second).plus(result[1]).equals(first)) {
+                    throw new Exception("quotient * divisor + remainder is not " + first);
+                }
+            }
+            System.out.println("PASSED");
+        }
+    }
+
+    static void burnikelZieglerTests() throws Exception {
+        // the recursive division only kicks in for large values, so the test values
+        // are divided again with the thresholds lowered to their minimum
+        int keepThreshold = BigInt.BURNIKEL_ZIEGLER_THRESHOLD;
+        int keepOffset = BigInt.BURNIKEL_ZIEGLER_OFFSET;
+        BigInt.BURNIKEL_ZIEGLER_THRESHOLD = 2;
+        BigInt.BURNIKEL_ZIEGLER_OFFSET = 0;
+        try {
+            System.out.println("Burnikel-Ziegler division:");
+            divideTests();
+            divideAndRemainderTests();
+        }
+        finally {
+            BigInt.BURNIKEL_ZIEGLER_THRESHOLD = keepThreshold;
+            BigInt.BURNIKEL_ZIEGLER_OFFSET = keepOffset;
+        }
+    }
+
+    static String[][] modTests = {
+            //  { value, modulus, result }
+
+            { "7", "0", FAIL},
+            { "7", "-2", FAIL},
+            { "0", "7", "0"},
+            { "7", "2", "1"},
+            { "-7", "2", "1"},
+            { "-6", "2", "0"},
+            { "-1", "1000000000000000000000", "999999999999999999999"},
+            { "-123456789012345678901234567890", "9876543210987654321", "8950617269660493837"},
+            { "123456789012345678901234567890", "9876543210987654321", "925925941327160484"}
+    };
+
+    static void modTests() throws Exception {
+        for (int i = 0; i < modTests.length; i++) {
+            System.out.print("mod test " + i + ": ");
+            String[] test = modTests[i];
+            BigInt first = new BigInt(test[0]);
+            BigInt second = new BigInt(test[1]);
+            if (test[2].equals(FAIL)) {
+                boolean failed = false;
+                try {
+                    first.mod(second);
+                }
+                catch (ArithmeticException ae) {
+                    failed = true;
+                }
+                if (!failed) {
+                    throw new Exception("should fail, but did not.");
+                }
+            }
+            else {
+                BigInt expected = new BigInt(test[2]);
+                BigInt result = first.mod(second);
+                if (!result.equals(expected)) throw new Exception("expected " + expected + ", got " + result);
+            }
+            System.out.println("PASSED");
+        }
+    }
+
     static String[][] sideEffectsTest = {
             {"1", "3", "-1", "1", "1", "1" },
             {"-1", "-3", "1", "-1", "-1", "-1" },
@@ -381,6 +1542,273 @@ public class BigIntTest {
             {"555555555555555555555555555555555555555", "1666666666666666666666666666666666666665", "-555555555555555555555555555555555555555", "171467764060356652949245541838134430726508916323731138545953360768175582990398319615912208504801097393689986282578875", "555555555555555555555555555555555555555", "0" }
     };
 
+    static void scratchTests() throws Exception {
+        // once warmed up, the temporaries of every algorithm come from the scratch pool
+        int keepKaratsuba = BigInt.KARATSUBA_THRESHOLD;
+        int keepKaratsubaSquare = BigInt.KARATSUBA_SQUARE_THRESHOLD;
+        int keepNtt = BigInt.NTT_THRESHOLD;
+        int keepMaxRetained = BigInt.SCRATCH_MAX_RETAINED;
+        BigInt first = new BigInt("4387529684764836294576340762534975623487");
+        BigInt second = new BigInt("234558364309853742094587234863704968275094856723094587349229687");
+        BigInt product = new BigInt("1029131786219368217359117779022938857716221441984868183907004638862030608940295036497830628411994858569");
+        BigInt square = new BigInt("19250416734692623748293501156944068374660178453271670035626044271913304386039169");
+        BigInt numerator = product.plus(BigInt.ONE);
+        try {
+            BigInt.KARATSUBA_THRESHOLD = 4;
+            BigInt.KARATSUBA_SQUARE_THRESHOLD = 4;
+            String[] operations = { "karatsuba", "karatsuba square", "ntt", "long division" };
+            for (int i = 0; i < operations.length; i++) {
+                System.out.print("scratch test " + i + ": ");
+                BigInt.NTT_THRESHOLD = operations[i].equals("ntt") ? 1 : keepNtt;
+                long taken = 0;
+                long allocated = 0;
+                for (int repeat = 0; repeat < 3; repeat++) {
+                    if (repeat == 1) {
+                        taken = BigInt.Scratch.taken();
+                        allocated = BigInt.Scratch.allocated();
+                    }
+                    switch (operations[i]) {
+                        case "karatsuba", "ntt" -> {
+                            if (!first.multiply(second).equals(product)) throw new Exception("wrong product");
+                        }
+                        case "karatsuba square" -> {
+                            if (!first.square().equals(square)) throw new Exception("wrong square");
+                        }
+                        default -> {
+                            if (!numerator.divide(first).equals(second)) throw new Exception("wrong quotient");
+                        }
+                    }
+                }
+                if (BigInt.Scratch.taken() == taken) throw new Exception("no scratch arrays were taken");
+                if (BigInt.Scratch.allocated() != allocated) {
+                    throw new Exception((BigInt.Scratch.allocated() - allocated) + " scratch arrays allocated after warm up");
+                }
+                System.out.println("PASSED");
+            }
+
+            // the pool keeps at most SCRATCH_MAX_RETAINED digits, and releaseScratch() empties it
+            BigInt.NTT_THRESHOLD = 1;
+            int[] maxRetained = { keepMaxRetained, 1 << 6, 0 };
+            for (int i = 0; i < maxRetained.length; i++) {
+                System.out.print("scratch retained test " + i + ": ");
+                BigInt.SCRATCH_MAX_RETAINED = maxRetained[i];
+                BigInt.releaseScratch();
+                if (!first.multiply(second).equals(product)) throw new Exception("wrong product");
+                if (!numerator.divide(first).equals(second)) throw new Exception("wrong quotient");
+                long retained = BigInt.Scratch.get().retained();
+                if (retained > maxRetained[i]) throw new Exception(retained + " digits retained");
+                if (retained == 0 && maxRetained[i] == keepMaxRetained) throw new Exception("nothing retained");
+                BigInt.releaseScratch();
+                if (BigInt.Scratch.get().retained() != 0) throw new Exception("retained after releaseScratch");
+                System.out.println("PASSED");
+            }
+        }
+        finally {
+            BigInt.KARATSUBA_THRESHOLD = keepKaratsuba;
+            BigInt.KARATSUBA_SQUARE_THRESHOLD = keepKaratsubaSquare;
+            BigInt.NTT_THRESHOLD = keepNtt;
+            BigInt.SCRATCH_MAX_RETAINED = keepMaxRetained;
+        }
+    }
+
+    static void binaryTests() throws Exception {
+        // BinaryBigInt has to agree with BigInt on every table - its results are compared as strings
+        for (int i = 0; i < constructorTests.length; i++) {
+            System.out.print("binary constructor test " + i + ": ");
+            String[] test = constructorTests[i];
+            if (test[1].equals(FAIL)) {
+                boolean failed = false;
+                try {
+                    new BinaryBigInt(test[0]);
+                } catch (IllegalArgumentException e) {
+                    failed = true;
+                }
+                if (!failed) throw new Exception("should fail but did not");
+            }
+            else if (!new BinaryBigInt(test[0]).toString().equals(test[1])) throw new Exception("result not equal");
+            System.out.println("PASSED");
+        }
+        for (long value : new long[] { 0, -1, 4294967295L, 4294967296L, -4294967296L, Long.MAX_VALUE, Long.MIN_VALUE }) {
+            System.out.print("binary valueOf test " + value + ": ");
+            if (!BinaryBigInt.valueOf(value).toString().equals(Long.toString(value))) throw new Exception("result not equal");
+            // equal values from other constructions (with longer digit arrays) hash the same
+            BinaryBigInt parsed = new BinaryBigInt(Long.toString(value));
+            BinaryBigInt computed = parsed.plus(BinaryBigInt.ONE).minus(BinaryBigInt.ONE);
+            if (BinaryBigInt.valueOf(value).hashCode() != parsed.hashCode() || parsed.hashCode() != computed.hashCode())
+                throw new Exception("equal values with different hash codes");
+            System.out.println("PASSED");
+        }
+        for (int i = 0; i < compareTests.length; i++) {
+            System.out.print("binary compareTo test " + i + ": ");
+            String[] test = compareTests[i];
+            int result = new BinaryBigInt(test[0]).compareTo(new BinaryBigInt(test[1]));
+            if ((result > 0 && !test[2].equals(LARGER))  ||
+                    (result < 0 && !test[2].equals(SMALLER)) ||
+                    (result == 0 && !test[2].equals(EQUAL)))  throw new Exception("result not equal");
+            System.out.println("PASSED");
+        }
+        String[][][] tables = { plusTestsSimple, minusTestsSimple, multiplyTestsSimple, multiplyTestsSimple, multiplyTestsSimple };
+        String[] names = { "plus", "minus", "multiply", "karatsuba", "karatsuba 1" };
+        int keepKaratsuba = BinaryBigInt.KARATSUBA_THRESHOLD;
+        try {
+            for (int t = 0; t < tables.length; t++) {
+                // the karatsuba rounds run the multiplication table again with the threshold at its
+                // minimum, and below it (where it has to be treated as the minimum)
+                BinaryBigInt.KARATSUBA_THRESHOLD = names[t].equals("karatsuba") ? 2 : names[t].equals("karatsuba 1") ? 1 : keepKaratsuba;
+                for (int i = 0; i < tables[t].length; i++) {
+                    System.out.print("binary " + names[t] + " test " + i + ": ");
+                    String[] test = tables[t][i];
+                    BinaryBigInt first = new BinaryBigInt(test[0]);
+                    BinaryBigInt second = new BinaryBigInt(test[1]);
+                    BinaryBigInt result = switch (names[t]) {
+                        case "plus" -> first.plus(second);
+                        case "minus" -> first.minus(second);
+                        default -> first.multiply(second);
+                    };
+                    if (!result.toString().equals(new BigInt(test[2]).toString())) {
+                        throw new Exception("expected " + test[2] + ", got " + result);
+                    }
+                    System.out.println("PASSED");
+                }
+            }
+        }
+        finally {
+            BinaryBigInt.KARATSUBA_THRESHOLD = keepKaratsuba;
+        }
+
+        for (int i = -99; i < 99; i++) {
+            BinaryBigInt I = BinaryBigInt.valueOf(i);
+            for (int j = -30; j < 30; j++) {
+                if (j == 0) continue;
+                BinaryBigInt[] result = I.divideAndRemainder(BinaryBigInt.valueOf(j));
+                if (!result[0].toString().equals(Integer.toString(i / j)) ||
+                        !result[1].toString().equals(Integer.toString(i % j))) {
+                    throw new Exception("expected " + (i / j) + ", " + (i % j) + ", got " + result[0] + ", " + result[1]);
+                }
+            }
+        }
+        System.out.println("binary small integers divideAndRemainder test - PASSED");
+        for (int i = 0; i < divideAndRemainderTests.length; i++) {
+            System.out.print("binary divideAndRemainder test " + i + ": ");
+            String[] test = divideAndRemainderTests[i];
+            BinaryBigInt first = new BinaryBigInt(test[0]);
+            BinaryBigInt second = new BinaryBigInt(test[1]);
+            if (test[2].equals(FAIL)) {
+                boolean failed = false;
+                try {
+                    first.divideAndRemainder(second);
+                }
+                catch (ArithmeticException ae) {
+                    failed = true;
+                }
+                if (!failed) {
+                    throw new Exception("should fail, but did not.");
+                }
+            }
+            else {
+                BinaryBigInt[] result = first.divideAndRemainder(second);
+                if (!result[0].toString().equals(test[2]) || !result[1].toString().equals(test[3])) {
+                    throw new Exception("expected " + test[2] + ", " + test[3] + ", got " + result[0] + ", " + result[1]);
+                }
+                if (!result[0].multiply(second).plus(result[1]).equals(first)) {
+                    throw new Exception("quotient * divisor + remainder is not " + first);
+                }
+            }
+            System.out.println("PASSED");
+        }
+    }
+
+    static void mappedTests() throws Exception {
+        // the operations stream in blocks - with blocks of 2 digits, the tables cross many of them
+        int keepBlock = MappedBigInt.BLOCK_DIGITS;
+        Path directory = Files.createTempDirectory("mappedTests");
+        try {
+            Path first = directory.resolve("first");
+            Path second = directory.resolve("second");
+            Path result = directory.resolve("result");
+            for (int block : new int[] { keepBlock, 2 }) {
+                MappedBigInt.BLOCK_DIGITS = block;
+                String[][][] tables = { plusTestsSimple, minusTestsSimple, multiplyTestsSimple };
+                String[] names = { "plus", "minus", "multiply" };
+                for (int t = 0; t < tables.length; t++) {
+                    for (int i = 0; i < tables[t].length; i++) {
+                        System.out.print("mapped " + names[t] + " test " + i + " (blocks of " + block + "): ");
+                        String[] test = tables[t][i];
+                        MappedBigInt firstValue = MappedBigInt.create(first, new BigInt(test[0]));
+                        MappedBigInt secondValue = MappedBigInt.create(second, new BigInt(test[1]));
+                        MappedBigInt mapped = t == 0 ? firstValue.plus(secondValue, result) :
+                                t == 1 ? firstValue.minus(secondValue, result) : firstValue.multiply(secondValue, result);
+                        if (!mapped.toBigInt().toString().equals(test[2])) throw new Exception("expected " + test[2] + ", got " + mapped.toBigInt());
+                        // the result file is in BigInt's format, possibly with unused bytes at its end
+                        if (!MappedBigInt.open(result).toBigInt().toString().equals(test[2])) throw new Exception("reopened result not equal");
+                        try (FileChannel channel = FileChannel.open(result)) {
+                            if (!BigInt.readFrom(channel).toString().equals(test[2])) throw new Exception("result file not equal");
+                        }
+                        if (mapped.signum() != new BigInt(test[2]).compareTo(BigInt.ZERO)) throw new Exception("wrong signum");
+                        // a result file is longer than its value - the hash only covers the value
+                        if (!mapped.equals(MappedBigInt.open(result)) || mapped.hashCode() != MappedBigInt.create(first, mapped.toBigInt()).hashCode())
+                            throw new Exception("equal values with different hash codes");
+                        System.out.println("PASSED");
+                    }
+                }
+                for (int i = 0; i < compareTests.length; i++) {
+                    System.out.print("mapped compare test " + i + " (blocks of " + block + "): ");
+                    String[] test = compareTests[i];
+                    BigInt firstValue = new BigInt(test[0]);
+                    BigInt secondValue = new BigInt(test[1]);
+                    int comparison = MappedBigInt.create(first, firstValue).compareTo(MappedBigInt.create(second, secondValue));
+                    if (Integer.signum(comparison) != Integer.signum(firstValue.compareTo(secondValue))) throw new Exception("wrong comparison " + comparison);
+                    System.out.println("PASSED");
+                }
+            }
+
+            System.out.print("mapped long multiply test: ");
+            BigInt longFirst = BigInt.ZERO.minus(BigIntBenchmark.randomBigInt(3000));
+            BigInt longSecond = BigIntBenchmark.randomBigInt(1700);
+            MappedBigInt.BLOCK_DIGITS = 500;
+            MappedBigInt product = MappedBigInt.create(first, longFirst).multiply(MappedBigInt.create(second, longSecond), result);
+            if (!product.toBigInt().equals(longFirst.multiply(longSecond))) throw new Exception("result not equal");
+            System.out.println("PASSED");
+
+            System.out.print("mapped result file test: ");
+            MappedBigInt operand = MappedBigInt.create(first, BigInt.ONE);
+            boolean failed = false;
+            try {
+                operand.plus(operand, first);
+            } catch (IllegalArgumentException e) {
+                failed = true;
+            }
+            if (!failed) throw new Exception("writing over an operand did not fail");
+            System.out.println("PASSED");
+
+            for (int i = 0; i < serializationErrorTests.length; i++) {
+                System.out.print("mapped open error test " + i + ": ");
+                String[] test = serializationErrorTests[i];
+                Files.write(first, fromHex(test[0]));
+                String message = null;
+                try {
+                    MappedBigInt.open(first);
+                } catch (EOFException e) {
+                    message = "Truncated BigInt bytes";
+                } catch (IllegalArgumentException e) {
+                    message = e.getMessage();
+                }
+                if (!test[1].equals(message) && !(message == null && test[1].startsWith("Unexpected")))
+                    throw new Exception("expected message " + test[1] + ", got " + message);
+                System.out.println("PASSED");
+            }
+        }
+        finally {
+            MappedBigInt.BLOCK_DIGITS = keepBlock;
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
     public static void expressionTests() throws Exception {
         for (int i = 0; i < sideEffectsTest.length; i++) {
             System.out.println("side effects test " + i + ":");
@@ -423,12 +1851,36 @@ public class BigIntTest {
 
     public static void start() throws Exception {
         testConstructor();
+        parseInputTests();
+        parseStreamTests();
+        parseErrorTests();
+        toStringTests();
+        writeDecimalTests();
+        serializationTests();
+        valueOfTests();
+        longValueTests();
         compareTests();
         plusTests();
         minusTests();
+        sharedOperandTests();
+        mutableTests();
+        vectorTests();
         multiplyTests();
+        multiplyAlgorithmTests();
+        multiplyParallelTests();
+        multiplyAddTests();
+        reduceTests();
+        squareTests();
+        powTests();
         divBy2Tests();
+        intTests();
         divideTests();
+        divideAndRemainderTests();
+        modTests();
+        burnikelZieglerTests();
+        scratchTests();
+        binaryTests();
+        mappedTests();
         expressionTests();
     }
 }
@@ -0,0 +1,564 @@
+import java.util.Arrays;
+/**
+ * BinaryBigInt - the same integer arithmetic as BigInt, on base 2^32 digits.
+ * BigInt keeps its digits in base 10^9, which makes parsing and printing linear, but costs a
+ * division (and a remainder) by 10^9 for every digit product, carry and borrow. Here the digits
+ * are whole 32 bit words, so the products, carries and borrows are plain shifts and masks of
+ * longs, at the price of a quadratic conversion from and to decimal in the constructor and
+ * toString - which makes BinaryBigInt the better choice for long chains of arithmetic on
+ * values that are only read and printed once.
+ * Addition and subtraction are the standard O(n) algorithms, multiplication is the long
+ * multiplication for short values and karatsuba's method for long ones, and division is
+ * Knuth's long division (Algorithm D).
+ * BinaryBigInts are immutable, and can be shared freely between threads.
+ */
+public class BinaryBigInt implements Comparable<BinaryBigInt> {
+    /*
+    The representation is the same as BigInt's, in base 2^32 - an int array 'digits' from
+    the least significant digit, of which the first 'length' are used without leading zeros,
+    and a 'sign' (-1, 1), with zero always positive. The digits are unsigned: an int holds
+    the 32 bits of a digit, and is widened to a long with (digit & MASK) for arithmetic.
+    Two digits multiplied and added to two more digits are at most 2^64 - 1, so the digit
+    products of the kernels fit in a long read as unsigned, and are split back into digits
+    with '>>> 32' and a cast.
+     */
+    private static final long MASK = 0xFFFFFFFFL;
+    // the decimal conversions go through BigInt's digits - 9 decimal characters in [0, 10^9)
+    private static final int DECIMAL_BASE = 1000000000;
+    private static final int DECIMAL_WIDTH = 9;
+    static final BinaryBigInt ZERO = valueOf(0);
+    static final BinaryBigInt ONE = valueOf(1);
+    // multiplication with a factor shorter than KARATSUBA_THRESHOLD digits is done with the long
+    // multiplication (not final so that it can be tuned, like BigInt's thresholds)
+    static int KARATSUBA_THRESHOLD = Integer.getInteger("bigint.binaryKaratsubaThreshold", 32);
+    final int[] digits;
+    final int length;
+    final int sign;
+
+    /**
+     * Creates a new BinaryBigInt with value equal to strNum, in the same format as
+     * BigInt(CharSequence) - an optional sign char ('-'/'+') in front of decimal digits.
+     * @param strNum Value as a String (or any other CharSequence)
+     */
+    public BinaryBigInt(CharSequence strNum) {
+        this(parse(strNum));
+    }
+
+    // adopt the digits of a newly parsed BinaryBigInt
+    private BinaryBigInt(BinaryBigInt parsed) {
+        this(parsed.digits, parsed.length, parsed.sign);
+    }
+
+    // create a signed BinaryBigInt from the first 'length' cells of an array of digits
+    private BinaryBigInt(int[] digits, int length, int sign) {
+        this.digits = digits;
+        this.length = length;
+        this.sign = sign;
+    }
+
+    /*
+    Parsing takes 9 decimal characters at a time (from the most significant), and multiplies
+    them into the digits parsed so far - value = value * 10^9 + next - which is O(n^2).
+     */
+    private static BinaryBigInt parse(CharSequence chars) {
+        if (chars == null || chars.length() == 0) {
+            throw new IllegalArgumentException("Input to BinaryBigInt constructor " +
+                    "was empty or null.");
+        }
+        int digitsStart = (chars.charAt(0) == '-' || chars.charAt(0) == '+') ? 1 : 0;
+        int end = chars.length();
+        if (digitsStart == end) {
+            throw new IllegalArgumentException("Input to BinaryBigInt constructor " +
+                    "has a sign but no digits.");
+        }
+        // every 9 characters add less than 30 bits, so one base 2^32 digit each is plenty
+        int[] digits = new int[(end - digitsStart + DECIMAL_WIDTH - 1) / DECIMAL_WIDTH + 1];
+        int length = 0;
+        int groupEnd = digitsStart + (end - digitsStart - 1) % DECIMAL_WIDTH + 1;
+        for (int groupStart = digitsStart; groupStart < end; groupStart = groupEnd, groupEnd += DECIMAL_WIDTH) {
+            int group = 0;
+            for (int i = groupStart; i < groupEnd; i++) {
+                int decimal = chars.charAt(i) - '0';
+                if (decimal < 0 || decimal > 9) {
+                    throw new IllegalArgumentException("Attempted to parse as int a non-digit character," +
+                            " in BinaryBigInt input " + chars + " at location " + i);
+                }
+                group = group * 10 + decimal;
+            }
+            length = multiplyAddDigit(digits, length, DECIMAL_BASE, group);
+        }
+        int sign = chars.charAt(0) == '-' ? -1 : 1;
+        return signedResult(digits, Math.max(length, 1), sign);
+    }
+
+    /*
+    value = value * factor + addend, in place for the first 'length' digits of 'value' (which
+    must have room for one more), where factor and addend are in [0, 2^31). Returns the new length.
+     */
+    private static int multiplyAddDigit(int[] value, int length, long factor, long addend) {
+        long carry = addend;
+        for (int i = 0; i < length; i++) {
+            long product = (value[i] & MASK) * factor + carry; // < 2^63, no overflow
+            value[i] = (int)product;
+            carry = product >>> 32;
+        }
+        if (carry > 0) {
+            value[length++] = (int)carry;
+        }
+        return length;
+    }
+
+    /**
+     * Returns a BinaryBigInt with the given value.
+     * @param value
+     * @return BinaryBigInt equal to value
+     */
+    public static BinaryBigInt valueOf(long value) {
+        // the magnitude of Long.MIN_VALUE is 2^63, which -value gives exactly when read as unsigned
+        long magnitude = value < 0 ? -value : value;
+        int[] digits = { (int)magnitude, (int)(magnitude >>> 32) };
+        return new BinaryBigInt(digits, digits[1] == 0 ? 1 : 2, value < 0 ? -1 : 1);
+    }
+
+    /**
+     * @return Value as a numeric string in base10.
+     */
+    public String toString() {
+        // split the magnitude into decimal digits of BigInt (in [0, 10^9)) by repeated short
+        // division, and write them out like BigInt.toString - O(n^2)
+        int[] quotient = Arrays.copyOf(digits, length);
+        int quotientLength = length;
+        int[] decimals = new int[length * 32 / 29 + 1];
+        int decimalsLength = 0;
+        do {
+            long remainder = 0;
+            for (int i = quotientLength - 1; i >= 0; i--) {
+                long current = (remainder << 32) | (quotient[i] & MASK); // < 10^9 * 2^32, no overflow
+                quotient[i] = (int)(current / DECIMAL_BASE);
+                remainder = current % DECIMAL_BASE;
+            }
+            decimals[decimalsLength++] = (int)remainder;
+            quotientLength = stripLeadingZeros(quotient, quotientLength);
+        } while (quotientLength > 1 || quotient[0] != 0);
+
+        StringBuilder result = new StringBuilder(decimalsLength * DECIMAL_WIDTH + 1);
+        if (sign < 0) {
+            result.append('-');
+        }
+        result.append(decimals[decimalsLength - 1]);
+        for (int i = decimalsLength - 2; i >= 0; i--) {
+            String decimal = Integer.toString(decimals[i]);
+            for (int pad = decimal.length(); pad < DECIMAL_WIDTH; pad++) {
+                result.append('0');
+            }
+            result.append(decimal);
+        }
+        return result.toString();
+    }
+
+    /**
+     * @param other the object to be compared.
+     * @return Comparison by value
+     */
+    public int compareTo(BinaryBigInt other) {
+        if (this.sign != other.sign) {
+            return this.sign > other.sign ? 1 : -1;
+        }
+        return this.sign * compareMagnitudes(this.digits, this.length, other.digits, other.length);
+    }
+
+    /*
+    Comparison of the magnitudes in the first 'firstLength' and 'secondLength' digits of the
+    given arrays (without leading zeros).
+     */
+    private static int compareMagnitudes(int[] first, int firstLength, int[] second, int secondLength) {
+        if (firstLength != secondLength) {
+            return firstLength > secondLength ? 1 : -1;
+        }
+        int i = firstLength - 1;
+        while (i >= 0 && first[i] == second[i]) {
+            i--;
+        }
+        if (i == -1) {
+            return 0;
+        }
+        return Integer.compareUnsigned(first[i], second[i]);
+    }
+
+    /**
+     * @param otherRaw
+     * @return true if otherRaw is a BinaryBigInt of equal value.
+     */
+    public boolean equals(Object otherRaw) {
+        if (!(otherRaw instanceof BinaryBigInt other)) {
+            return false;
+        }
+        return compareTo(other) == 0;
+    }
+
+    /**
+     * @return A hash of the sign and the used digits, consistent with equals
+     */
+    public int hashCode() {
+        int hash = 31 * sign + length;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + digits[i];
+        }
+        return hash;
+    }
+
+    /**
+     * Addition of 'this' and 'add'.
+     * @param add
+     * @return this + add
+     */
+    public BinaryBigInt plus(BinaryBigInt add) {
+        // a + b == sign(a) * (|a| + |b|)
+        if (this.sign == add.sign) {
+            return addPositives(this, add, this.sign);
+        }
+        // a + b == sign(a) * (|a| - |b|)
+        return subtractPositives(this, add, this.sign);
+    }
+
+    /**
+     * Subtraction of 'subtract' from 'this'.
+     * @param subtract
+     * @return this - subtract
+     */
+    public BinaryBigInt minus(BinaryBigInt subtract) {
+        // a - b == sign(a) * (|a| - |b|)
+        if (this.sign == subtract.sign) {
+            return subtractPositives(this, subtract, this.sign);
+        }
+        // a - b == sign(a) * (|a| + |b|)
+        return addPositives(this, subtract, this.sign);
+    }
+
+    /*
+    sign * (|first| + |second|)
+     */
+    private static BinaryBigInt addPositives(BinaryBigInt first, BinaryBigInt second, int sign) {
+        if (first.length < second.length) {
+            BinaryBigInt temp = first;
+            first = second;
+            second = temp;
+        }
+        int[] result = new int[first.length + 1];
+        System.arraycopy(first.digits, 0, result, 0, first.length);
+        addInto(second.digits, second.length, result, 0);
+        return new BinaryBigInt(result, result[first.length] == 0 ? first.length : first.length + 1, sign);
+    }
+
+    /*
+    sign * (|value| - |subtract|)
+     */
+    private static BinaryBigInt subtractPositives(BinaryBigInt value, BinaryBigInt subtract, int sign) {
+        int comparison = compareMagnitudes(value.digits, value.length, subtract.digits, subtract.length);
+        if (comparison == 0) {
+            return ZERO;
+        }
+        if (comparison < 0) {
+            BinaryBigInt temp = value;
+            value = subtract;
+            subtract = temp;
+            sign = -sign;
+        }
+        int[] result = Arrays.copyOf(value.digits, value.length);
+        subtractFrom(subtract.digits, subtract.length, result, 0);
+        return new BinaryBigInt(result, stripLeadingZeros(result, result.length), sign);
+    }
+
+    /*
+    Adds the first 'valueLength' digits of 'value' into 'result' from 'offset' on, carrying as
+    far as needed - 'result' must have room for the sum.
+     */
+    private static void addInto(int[] value, int valueLength, int[] result, int offset) {
+        long carry = 0;
+        int i = offset;
+        for (int j = 0; j < valueLength; j++, i++) {
+            long sum = (result[i] & MASK) + (value[j] & MASK) + carry;
+            result[i] = (int)sum;
+            carry = sum >>> 32;
+        }
+        // the carry ripples on through digits of all ones (that it turns to zeros)
+        for (; carry != 0; i++) {
+            result[i]++;
+            carry = result[i] == 0 ? 1 : 0;
+        }
+    }
+
+    /*
+    Subtracts the first 'valueLength' digits of 'value' from 'result' from 'offset' on, borrowing
+    as far as needed - the digits of 'result' must make up the larger value.
+     */
+    private static void subtractFrom(int[] value, int valueLength, int[] result, int offset) {
+        long borrow = 0;
+        int i = offset;
+        for (int j = 0; j < valueLength; j++, i++) {
+            long difference = (result[i] & MASK) - (value[j] & MASK) - borrow;
+            result[i] = (int)difference;
+            borrow = difference >>> 63; // negative differences borrow
+        }
+        // the borrow ripples on through zero digits (that it turns to all ones)
+        for (; borrow != 0; i++) {
+            borrow = result[i] == 0 ? 1 : 0;
+            result[i]--;
+        }
+    }
+
+    /**
+     * Multiplication using the long multiplication or karatsuba's method, depending
+     * on the length of the factors.
+     * @param factor
+     * @return this * factor
+     */
+    public BinaryBigInt multiply(BinaryBigInt factor) {
+        if (isZero(this) || isZero(factor)) {
+            return ZERO;
+        }
+        int sign = this.sign == factor.sign ? 1 : -1;
+        // the split needs at least 2 digits (with 1 digit, karatsuba would call itself on the same factors)
+        int threshold = Math.max(KARATSUBA_THRESHOLD, 2);
+        if (this.length >= threshold && factor.length >= threshold) {
+            BinaryBigInt product = karatsuba(this, factor);
+            return new BinaryBigInt(product.digits, product.length, sign);
+        }
+        int[] result = new int[this.length + factor.length];
+        multiplyMagnitudes(this.digits, this.length, factor.digits, factor.length, result);
+        return new BinaryBigInt(result, stripLeadingZeros(result, result.length), sign);
+    }
+
+    /*
+    The long multiplication - writes first * second into 'result', which must be zeroed for
+    firstLength + secondLength digits. Every digit product is split into its low 32 bits (the
+    digit of the result) and its high 32 bits (the carry) without any division.
+     */
+    private static void multiplyMagnitudes(int[] first, int firstLength, int[] second, int secondLength, int[] result) {
+        for (int i = 0; i < firstLength; i++) {
+            long firstDigit = first[i] & MASK;
+            if (firstDigit == 0) {
+                continue;
+            }
+            // (2^32 - 1)^2 + 2 * (2^32 - 1) == 2^64 - 1, so the sum fits in an unsigned long
+            long carry = 0;
+            for (int j = 0; j < secondLength; j++) {
+                long product = firstDigit * (second[j] & MASK) + (result[i + j] & MASK) + carry;
+                result[i + j] = (int)product;
+                carry = product >>> 32;
+            }
+            result[i + secondLength] = (int)carry;
+        }
+    }
+
+    /*
+    karatsuba's multiplication of magnitudes (see BigInt.karatsuba) - with first == x1 * 2^(32 * half)
+    + x0 and second == y1 * 2^(32 * half) + y0, the product is z2 * 2^(64 * half) + z1 * 2^(32 * half)
+    + z0, where z2 == x1 * y1, z0 == x0 * y0 and z1 == (x1 + x0) * (y1 + y0) - z2 - z0.
+     */
+    private static BinaryBigInt karatsuba(BinaryBigInt first, BinaryBigInt second) {
+        int half = Math.max(first.length, second.length) / 2;
+        BinaryBigInt x1 = highDigits(first, half);
+        BinaryBigInt x0 = lowDigits(first, half);
+        BinaryBigInt y1 = highDigits(second, half);
+        BinaryBigInt y0 = lowDigits(second, half);
+
+        BinaryBigInt z2 = x1.multiply(y1);
+        BinaryBigInt z0 = x0.multiply(y0);
+        BinaryBigInt z1 = x1.plus(x0).multiply(y1.plus(y0)).minus(z2).minus(z0);
+
+        // z0 < 2^(64 * half) so it does not overlap z2, and z1 is added over both
+        int[] result = new int[first.length + second.length + 1];
+        System.arraycopy(z0.digits, 0, result, 0, z0.length);
+        if (!isZero(z2)) {
+            System.arraycopy(z2.digits, 0, result, 2 * half, z2.length);
+        }
+        addInto(z1.digits, z1.length, result, half);
+        return new BinaryBigInt(result, stripLeadingZeros(result, result.length), 1);
+    }
+
+    private static BinaryBigInt highDigits(BinaryBigInt value, int n) {
+        if (value.length <= n) {
+            return ZERO;
+        }
+        return new BinaryBigInt(Arrays.copyOfRange(value.digits, n, value.length), value.length - n, 1);
+    }
+
+    private static BinaryBigInt lowDigits(BinaryBigInt value, int n) {
+        int[] low = Arrays.copyOf(value.digits, Math.min(n, value.length));
+        return new BinaryBigInt(low, stripLeadingZeros(low, low.length), 1);
+    }
+
+    /**
+     * Divide this by divisor without remainder
+     * @param divisor
+     * @return this / divisor
+     * @throws ArithmeticException On division by 0
+     */
+    public BinaryBigInt divide(BinaryBigInt divisor) throws ArithmeticException {
+        return divideAndRemainder(divisor)[0];
+    }
+
+    /**
+     * Truncating division of this by divisor, returning both the quotient and the remainder.
+     * The remainder takes the sign of this, so that this == quotient * divisor + remainder.
+     * @param divisor
+     * @return { this / divisor, remainder of this / divisor }
+     * @throws ArithmeticException On division by 0
+     */
+    public BinaryBigInt[] divideAndRemainder(BinaryBigInt divisor) throws ArithmeticException {
+        if (isZero(divisor)) {
+            throw new ArithmeticException("Attempted BinaryBigInt division by zero");
+        }
+        if (compareMagnitudes(divisor.digits, divisor.length, this.digits, this.length) > 0) {
+            return new BinaryBigInt[] { ZERO, this };
+        }
+        int[] quotient = new int[this.length - divisor.length + 1];
+        int[] remainder = new int[divisor.length];
+        if (divisor.length == 1) {
+            remainder[0] = divideMagnitudeByDigit(this.digits, this.length, divisor.digits[0] & MASK, quotient);
+        }
+        else {
+            divideMagnitudes(this.digits, this.length, divisor.digits, divisor.length, quotient, remainder);
+        }
+        return new BinaryBigInt[] {
+                signedResult(quotient, stripLeadingZeros(quotient, quotient.length), this.sign == divisor.sign ? 1 : -1),
+                signedResult(remainder, stripLeadingZeros(remainder, remainder.length), this.sign)
+        };
+    }
+
+    /**
+     * Modulus of this by a positive modulus.
+     * Unlike the remainder of divideAndRemainder, the result is never negative.
+     * @param modulus
+     * @return this mod modulus, in [0, modulus)
+     * @throws ArithmeticException If modulus is not positive
+     */
+    public BinaryBigInt mod(BinaryBigInt modulus) throws ArithmeticException {
+        if (modulus.sign < 0 || isZero(modulus)) {
+            throw new ArithmeticException("Attempted BinaryBigInt modulus by a non-positive value");
+        }
+        BinaryBigInt remainder = divideAndRemainder(modulus)[1];
+        return remainder.sign < 0 ? remainder.plus(modulus) : remainder;
+    }
+
+    /*
+    Knuth's long division (see BigInt.divideMagnitudes), where the normalization is a shift:
+    the divisor is shifted left until the top bit of its leading digit is set (and the numerator
+    along with it), and the remainder is shifted back at the end. The two digit by one digit
+    estimate of every quotient digit is an unsigned division of longs.
+    Requires divisorLength >= 2 and numerator >= divisor. 'quotient' must have room for
+    numeratorLength - divisorLength + 1 digits, and 'remainder' for divisorLength digits.
+     */
+    private static void divideMagnitudes(int[] numerator, int numeratorLength, int[] divisor, int divisorLength,
+                                         int[] quotient, int[] remainder) {
+        int shift = Integer.numberOfLeadingZeros(divisor[divisorLength - 1]);
+        int[] u = new int[numeratorLength + 1];
+        int[] v = new int[divisorLength + 1]; // the shift leaves the extra digit of v zero
+        shiftLeft(numerator, numeratorLength, shift, u);
+        shiftLeft(divisor, divisorLength, shift, v);
+
+        long vTop = v[divisorLength - 1] & MASK;
+        long vSecond = v[divisorLength - 2] & MASK;
+        for (int j = numeratorLength - divisorLength; j >= 0; j--) {
+            long uTop = ((long)u[j + divisorLength] << 32) | (u[j + divisorLength - 1] & MASK);
+            long estimate = Long.divideUnsigned(uTop, vTop);
+            long estimateRemainder = Long.remainderUnsigned(uTop, vTop);
+            // the estimate is below 2^32 before the product with vSecond is taken, and the remainder
+            // below 2^32 before it is shifted - so both sides fit in an unsigned long
+            while (estimate > MASK || Long.compareUnsigned(estimate * vSecond,
+                    (estimateRemainder << 32) | (u[j + divisorLength - 2] & MASK)) > 0) {
+                estimate--;
+                estimateRemainder += vTop;
+                if (estimateRemainder > MASK) {
+                    break;
+                }
+            }
+
+            // u[j, j + divisorLength] -= estimate * v, with the borrow carried as a signed long
+            long borrow = 0;
+            for (int i = 0; i < divisorLength; i++) {
+                long product = estimate * (v[i] & MASK);
+                long difference = (u[i + j] & MASK) - borrow - (product & MASK);
+                u[i + j] = (int)difference;
+                borrow = (product >>> 32) - (difference >> 32);
+            }
+            long topDifference = (u[j + divisorLength] & MASK) - borrow;
+            u[j + divisorLength] = (int)topDifference;
+            if (topDifference < 0) {
+                // the estimate was 1 too large - add the divisor back
+                estimate--;
+                long carry = 0;
+                for (int i = 0; i < divisorLength; i++) {
+                    long sum = (u[i + j] & MASK) + (v[i] & MASK) + carry;
+                    u[i + j] = (int)sum;
+                    carry = sum >>> 32;
+                }
+                u[j + divisorLength] += (int)carry;
+            }
+            quotient[j] = (int)estimate;
+        }
+        shiftRight(u, divisorLength, shift, remainder);
+    }
+
+    /*
+    Short division - writes value / divisor into 'quotient' for 0 < divisor < 2^32, and returns
+    the remainder.
+     */
+    private static int divideMagnitudeByDigit(int[] value, int valueLength, long divisor, int[] quotient) {
+        long remainder = 0;
+        for (int i = valueLength - 1; i >= 0; i--) {
+            long current = (remainder << 32) | (value[i] & MASK);
+            quotient[i] = (int)Long.divideUnsigned(current, divisor);
+            remainder = Long.remainderUnsigned(current, divisor);
+        }
+        return (int)remainder;
+    }
+
+    /*
+    Writes value * 2^shift into 'result' (which must have room for valueLength + 1 digits), for 0 <= shift < 32.
+     */
+    private static void shiftLeft(int[] value, int valueLength, int shift, int[] result) {
+        if (shift == 0) {
+            System.arraycopy(value, 0, result, 0, valueLength);
+            return;
+        }
+        int carry = 0;
+        for (int i = 0; i < valueLength; i++) {
+            result[i] = (value[i] << shift) | carry;
+            carry = value[i] >>> (32 - shift);
+        }
+        result[valueLength] = carry;
+    }
+
+    /*
+    Writes value / 2^shift into 'result' (which must have room for valueLength digits), for 0 <= shift < 32.
+     */
+    private static void shiftRight(int[] value, int valueLength, int shift, int[] result) {
+        if (shift == 0) {
+            System.arraycopy(value, 0, result, 0, valueLength);
+            return;
+        }
+        for (int i = 0; i < valueLength - 1; i++) {
+            result[i] = (value[i] >>> shift) | (value[i + 1] << (32 - shift));
+        }
+        result[valueLength - 1] = value[valueLength - 1] >>> shift;
+    }
+
+    private static boolean isZero(BinaryBigInt value) {
+        return value.length == 1 && value.digits[0] == 0;
+    }
+
+    // create a BinaryBigInt from a magnitude, making sure that zero is positive
+    private static BinaryBigInt signedResult(int[] digits, int length, int sign) {
+        boolean isZero = length == 1 && digits[0] == 0;
+        return new BinaryBigInt(digits, length, isZero ? 1 : sign);
+    }
+
+    private static int stripLeadingZeros(int[] digits, int length) {
+        while (length > 1 && digits[length - 1] == 0) {
+            length--;
+        }
+        return length;
+    }
+}
@@ -1,9 +1,16 @@
+import java.util.Arrays;
+
 public class Main {
     public static void main(String[] args) throws Exception {
         if (args.length > 0 && args[0].equals("test")) {
             BigIntTest.start();
             return;
         }
+        if (args.length > 0 && args[0].equals("bench")) {
+            // "bench" runs all the benchmarks, and "bench <name> ..." only the named ones
+            BigIntBenchmark.start(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
         BigIntCalculator calculator = new BigIntCalculator();
         calculator.start();
@@ -0,0 +1,415 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+/**
+ * MappedBigInt - a BigInt whose digits stay in a memory-mapped file instead of the heap.
+ * A value of hundreds of millions of decimal digits takes hundreds of megabytes as a BigInt,
+ * and several times that while it is multiplied. A MappedBigInt takes 4 bytes per 9 decimal
+ * digits of file, paged in and out by the operating system. Its operations stream over the
+ * digits in blocks of BLOCK_DIGITS (base 10^9) digits, and write their results to another
+ * mapped file, so the heap only ever holds a few blocks:
+ * addition, subtraction and comparison pass over the digits once (O(n)), and multiplication
+ * multiplies every pair of blocks as BigInts (with BigInt's algorithms) and adds the block
+ * products into the result - O((n / BLOCK_DIGITS) * (m / BLOCK_DIGITS) * M(BLOCK_DIGITS)).
+ * The files are in BigInt's binary format (see BigInt.toByteArray), so they can also be read
+ * with BigInt.readFrom. A MappedBigInt is immutable as long as its file isn't changed, but a
+ * result overwrites its file - a MappedBigInt of that file must not be used afterwards.
+ */
+public class MappedBigInt implements Comparable<MappedBigInt> {
+    /*
+    'digits' is an int view of the mapped digits - base 10^9 from the least significant, of
+    which there are 'length' without leading zeros - and 'sign' is -1 or 1, with zero always
+    positive, like in BigInt. A result file may be longer than its value (the header holds
+    the actual length), since the length of a sum or product is only known once it is
+    computed, and a mapped file can't be shrunk portably.
+     */
+    // the digits are streamed (and the factors multiplied) in blocks of BLOCK_DIGITS digits.
+    // Not final so that it can be tuned, like BigInt's thresholds
+    static int BLOCK_DIGITS = Integer.getInteger("bigint.mappedBlockDigits", 1 << 18);
+    // a single mapping covers up to 2GB
+    private static final int MAX_LENGTH = (Integer.MAX_VALUE - BigInt.HEADER_BYTES) / Integer.BYTES;
+    private final Path file;
+    private final IntBuffer digits;
+    final int length;
+    final int sign;
+
+    private MappedBigInt(Path file, ByteBuffer mapped, int length, int sign) {
+        this.file = file;
+        this.digits = mapped.slice(BigInt.HEADER_BYTES, Integer.BYTES * length).asIntBuffer();
+        this.length = length;
+        this.sign = sign;
+    }
+
+    /**
+     * Writes 'value' to 'file' (replacing its content) and maps it.
+     * @param file
+     * @param value
+     * @return MappedBigInt equal to value
+     * @throws IOException If the file can't be written
+     */
+    public static MappedBigInt create(Path file, BigInt value) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            value.writeTo(channel);
+        }
+        return open(file);
+    }
+
+    /**
+     * Maps a file that holds a BigInt in the format of BigInt.toByteArray (like the results
+     * of create and of the operations). The bytes after the value, if any, are ignored.
+     * @param file
+     * @return The value in the file
+     * @throws IOException If the file can't be read
+     * @throws EOFException If the file ends before the value does
+     * @throws IllegalArgumentException If the file does not hold a BigInt in the format of BigInt.toByteArray
+     */
+    public static MappedBigInt open(Path file) throws IOException, IllegalArgumentException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < BigInt.HEADER_BYTES) {
+                throw new EOFException("File ended inside a BigInt");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, BigInt.HEADER_BYTES);
+            int sign = BigInt.readHeader(header);
+            int length = header.getInt();
+            long size = BigInt.HEADER_BYTES + (long)Integer.BYTES * length;
+            if (channel.size() < size) {
+                throw new EOFException("File ended inside a BigInt");
+            }
+            if (length > MAX_LENGTH) {
+                throw new IllegalArgumentException("BigInt too long to map: " + length + " digits");
+            }
+            MappedBigInt value = new MappedBigInt(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, size), length, sign);
+            value.checkDigits();
+            return value;
+        }
+    }
+
+    /**
+     * @return The file of this value
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * @return -1, 0 or 1 as this is negative, zero or positive
+     */
+    public int signum() {
+        return length == 1 && digits.get(0) == 0 ? 0 : sign;
+    }
+
+    /**
+     * Reads the whole value into the heap.
+     * @return BigInt equal to this
+     */
+    public BigInt toBigInt() {
+        int[] heapDigits = new int[length];
+        digits.get(0, heapDigits);
+        return BigInt.signedResult(heapDigits, length, sign);
+    }
+
+    /**
+     * @param other the object to be compared.
+     * @return Comparison by value
+     */
+    public int compareTo(MappedBigInt other) {
+        if (this.sign != other.sign) {
+            return this.sign > other.sign ? 1 : -1;
+        }
+        return this.sign * compareMagnitudes(this, other);
+    }
+
+    /**
+     * @param otherRaw
+     * @return true if otherRaw is a MappedBigInt with the same value
+     */
+    public boolean equals(Object otherRaw) {
+        if (!(otherRaw instanceof MappedBigInt other)) {
+            return false;
+        }
+        return compareTo(other) == 0;
+    }
+
+    /**
+     * A hash of the sign and the digits, consistent with equals - it reads all the digits,
+     * a block at a time, like the other operations.
+     * @return Hash of the value
+     */
+    public int hashCode() {
+        int hash = 31 * sign + length;
+        int block = blockDigits();
+        int[] digitBlock = new int[Math.min(block, length)];
+        for (int from = 0; from < length; from += block) {
+            int count = Math.min(block, length - from);
+            digits.get(from, digitBlock, 0, count);
+            for (int i = 0; i < count; i++) {
+                hash = 31 * hash + digitBlock[i];
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Addition, streamed into 'result' (which is replaced, and must not be the file of an operand).
+     * @param add
+     * @param result File for the sum
+     * @return this + add, mapped from 'result'
+     * @throws IOException If the result can't be written
+     */
+    public MappedBigInt plus(MappedBigInt add, Path result) throws IOException {
+        return addSigned(add, add.sign, result);
+    }
+
+    /**
+     * Subtraction, streamed into 'result' (which is replaced, and must not be the file of an operand).
+     * @param subtract
+     * @param result File for the difference
+     * @return this - subtract, mapped from 'result'
+     * @throws IOException If the result can't be written
+     */
+    public MappedBigInt minus(MappedBigInt subtract, Path result) throws IOException {
+        return addSigned(subtract, -subtract.sign, result);
+    }
+
+    /**
+     * Multiplication, block by block into 'result' (which is replaced, and must not be
+     * the file of an operand).
+     * @param factor
+     * @param result File for the product
+     * @return this * factor, mapped from 'result'
+     * @throws IOException If the result can't be written
+     */
+    public MappedBigInt multiply(MappedBigInt factor, Path result) throws IOException {
+        checkResultFile(result, factor);
+        int capacity = checkedLength((long)length + factor.length);
+        MappedByteBuffer mapped = map(result, capacity);
+        IntBuffer product = mapped.slice(BigInt.HEADER_BYTES, Integer.BYTES * capacity).asIntBuffer();
+        int block = blockDigits();
+        // the block products are added into the result, which starts as zeros
+        int[] zeros = new int[Math.min(block, capacity)];
+        for (int from = 0; from < capacity; from += zeros.length) {
+            product.put(from, zeros, 0, Math.min(zeros.length, capacity - from));
+        }
+        for (int i = 0; i < length; i += block) {
+            BigInt first = readBlock(i);
+            if (first.equals(BigInt.ZERO)) {
+                continue;
+            }
+            for (int j = 0; j < factor.length; j += block) {
+                BigInt second = factor.readBlock(j);
+                if (!second.equals(BigInt.ZERO)) {
+                    addInto(first.multiply(second), product, i + j);
+                }
+            }
+        }
+        return finish(result, mapped, capacity, sign * factor.sign);
+    }
+
+    /*
+    this + otherSign * |other| into 'result'.
+     */
+    private MappedBigInt addSigned(MappedBigInt other, int otherSign, Path result) throws IOException {
+        checkResultFile(result, other);
+        if (sign == otherSign) {
+            return addMagnitudes(this, other, sign, result);
+        }
+        // the difference has the sign of the operand with the larger magnitude
+        if (compareMagnitudes(this, other) >= 0) {
+            return subtractMagnitudes(this, other, sign, result);
+        }
+        return subtractMagnitudes(other, this, otherSign, result);
+    }
+
+    /*
+    resultSign * (|first| + |second|) into 'result', a block at a time.
+     */
+    private static MappedBigInt addMagnitudes(MappedBigInt first, MappedBigInt second, int resultSign, Path result)
+            throws IOException {
+        int capacity = checkedLength(Math.max(first.length, second.length) + 1L);
+        MappedByteBuffer mapped = map(result, capacity);
+        IntBuffer sum = mapped.slice(BigInt.HEADER_BYTES, Integer.BYTES * capacity).asIntBuffer();
+        int block = blockDigits();
+        int[] firstBlock = new int[block];
+        int[] secondBlock = new int[block];
+        int carry = 0;
+        for (int from = 0; from < capacity - 1; from += block) {
+            int count = Math.min(block, capacity - 1 - from);
+            first.readDigits(from, firstBlock, count);
+            second.readDigits(from, secondBlock, count);
+            for (int i = 0; i < count; i++) {
+                int digitSum = firstBlock[i] + secondBlock[i] + carry; // < 2 * 10^9, no overflow
+                carry = digitSum >= BigInt.BASE ? 1 : 0;
+                firstBlock[i] = digitSum - carry * BigInt.BASE;
+            }
+            sum.put(from, firstBlock, 0, count);
+        }
+        sum.put(capacity - 1, carry);
+        return finish(result, mapped, capacity, resultSign);
+    }
+
+    /*
+    resultSign * (|first| - |second|) into 'result', a block at a time (where |first| >= |second|).
+     */
+    private static MappedBigInt subtractMagnitudes(MappedBigInt first, MappedBigInt second, int resultSign, Path result)
+            throws IOException {
+        int capacity = first.length;
+        MappedByteBuffer mapped = map(result, capacity);
+        IntBuffer difference = mapped.slice(BigInt.HEADER_BYTES, Integer.BYTES * capacity).asIntBuffer();
+        int block = blockDigits();
+        int[] firstBlock = new int[block];
+        int[] secondBlock = new int[block];
+        int borrow = 0;
+        for (int from = 0; from < capacity; from += block) {
+            int count = Math.min(block, capacity - from);
+            first.readDigits(from, firstBlock, count);
+            second.readDigits(from, secondBlock, count);
+            for (int i = 0; i < count; i++) {
+                int digitDifference = firstBlock[i] - secondBlock[i] - borrow;
+                borrow = digitDifference < 0 ? 1 : 0;
+                firstBlock[i] = digitDifference + borrow * BigInt.BASE;
+            }
+            difference.put(from, firstBlock, 0, count);
+        }
+        return finish(result, mapped, capacity, resultSign);
+    }
+
+    /*
+    Comparison of |first| to |second|, from the most significant block down.
+     */
+    private static int compareMagnitudes(MappedBigInt first, MappedBigInt second) {
+        if (first.length != second.length) {
+            return first.length > second.length ? 1 : -1;
+        }
+        int block = blockDigits();
+        int[] firstBlock = new int[Math.min(block, first.length)];
+        int[] secondBlock = new int[firstBlock.length];
+        for (int to = first.length; to > 0; to -= block) {
+            int from = Math.max(0, to - block);
+            first.readDigits(from, firstBlock, to - from);
+            second.readDigits(from, secondBlock, to - from);
+            for (int i = to - from - 1; i >= 0; i--) {
+                if (firstBlock[i] != secondBlock[i]) {
+                    return firstBlock[i] > secondBlock[i] ? 1 : -1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /*
+    Adds the digits of 'value' into 'target' from 'offset' on, carrying as far as needed.
+     */
+    private static void addInto(BigInt value, IntBuffer target, int offset) {
+        int[] window = new int[value.length];
+        target.get(offset, window);
+        int carry = 0;
+        for (int i = 0; i < value.length; i++) {
+            int digitSum = window[i] + value.digits[i] + carry;
+            carry = digitSum >= BigInt.BASE ? 1 : 0;
+            window[i] = digitSum - carry * BigInt.BASE;
+        }
+        target.put(offset, window);
+        for (int i = offset + value.length; carry == 1; i++) {
+            int digitSum = target.get(i) + 1;
+            carry = digitSum == BigInt.BASE ? 1 : 0;
+            target.put(i, digitSum - carry * BigInt.BASE);
+        }
+    }
+
+    /*
+    Copies digits [from, from + count) into block[0, count), with zeros past the length.
+     */
+    private void readDigits(int from, int[] block, int count) {
+        int available = Math.max(0, Math.min(count, length - from));
+        if (available > 0) {
+            digits.get(from, block, 0, available);
+        }
+        Arrays.fill(block, available, count, 0);
+    }
+
+    /*
+    The (positive) BigInt of the block of digits that starts at 'from'.
+     */
+    private BigInt readBlock(int from) {
+        int count = Math.min(blockDigits(), length - from);
+        int[] block = new int[count];
+        digits.get(from, block);
+        return BigInt.signedResult(block, BigInt.stripLeadingZeros(block, count), 1);
+    }
+
+    /*
+    Makes sure the mapped digits keep BigInt's invariables, a block at a time.
+     */
+    private void checkDigits() {
+        int block = blockDigits();
+        int[] digitBlock = new int[Math.min(block, length)];
+        for (int from = 0; from < length; from += block) {
+            int count = Math.min(block, length - from);
+            digits.get(from, digitBlock, 0, count);
+            for (int i = 0; i < count; i++) {
+                if (digitBlock[i] < 0 || digitBlock[i] >= BigInt.BASE) {
+                    throw new IllegalArgumentException("Illegal BigInt digit: " + digitBlock[i]);
+                }
+            }
+        }
+        if (length > 1 && digits.get(length - 1) == 0) {
+            throw new IllegalArgumentException("BigInt digits with a leading zero");
+        }
+    }
+
+    /*
+    Writes the header of a computed result (of up to 'capacity' digits) to its mapping.
+     */
+    private static MappedBigInt finish(Path file, MappedByteBuffer mapped, int capacity, int sign) {
+        IntBuffer resultDigits = mapped.slice(BigInt.HEADER_BYTES, Integer.BYTES * capacity).asIntBuffer();
+        int length = capacity;
+        while (length > 1 && resultDigits.get(length - 1) == 0) {
+            length--;
+        }
+        if (length == 1 && resultDigits.get(0) == 0) {
+            sign = 1;
+        }
+        mapped.put(0, BigInt.FORMAT_VERSION).put(1, (byte)sign).putInt(2, length);
+        return new MappedBigInt(file, mapped, length, sign);
+    }
+
+    /*
+    Replaces the content of 'file' with room for a header and 'capacity' digits, and maps it.
+     */
+    private static MappedByteBuffer map(Path file, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, BigInt.HEADER_BYTES + (long)Integer.BYTES * capacity);
+        }
+    }
+
+    /*
+    A result is written over its file, so it can't be the file of an operand.
+     */
+    private void checkResultFile(Path result, MappedBigInt other) throws IOException {
+        for (Path operand : new Path[] { file, other.file }) {
+            if (Files.exists(result) && Files.isSameFile(result, operand)) {
+                throw new IllegalArgumentException("The result file is the file of an operand: " + result);
+            }
+        }
+    }
+
+    private static int checkedLength(long length) {
+        if (length > MAX_LENGTH) {
+            throw new ArithmeticException("BigInt result too long to map: " + length + " digits");
+        }
+        return (int)length;
+    }
+
+    private static int blockDigits() {
+        return Math.max(BLOCK_DIGITS, 1);
+    }
+}
@@ -0,0 +1,313 @@
+import java.util.Arrays;
+/**
+ * MutableBigInt - an accumulator for BigInt arithmetic.
+ * Every BigInt operation allocates a new BigInt for its result, which adds up in loops
+ * that keep updating the same value (sums, the recombination steps of the multiplication
+ * and division algorithms). A MutableBigInt instead changes its own digits in place, in a
+ * buffer that is only reallocated (to twice its size) when it runs out of room.
+ * The finished value is taken with toBigInt(), which shares the buffer instead of copying
+ * it - the buffer is then copied before the next change of the MutableBigInt (if any).
+ * Unlike BigInt, a MutableBigInt is not thread safe.
+ */
+public class MutableBigInt {
+    /*
+    The representation is the same as BigInt's - base 10^9 digits from the least significant,
+    of which the first 'length' are used, without leading zeros, and with zero always positive.
+    The cells of the buffer past 'length' are always kept zeroed, so that adding a shifted
+    value (or a longer one) can write right over them.
+     */
+    private int[] digits;
+    private int length;
+    private int sign;
+    // the buffer is shared with a BigInt returned by toBigInt, and must be copied before a change
+    private boolean shared;
+
+    /**
+     * Creates a MutableBigInt with value zero.
+     */
+    public MutableBigInt() {
+        this(BigInt.ZERO);
+    }
+
+    /**
+     * Creates a MutableBigInt with value equal to 'value'.
+     * @param value
+     */
+    public MutableBigInt(BigInt value) {
+        this(value, value.length + 1);
+    }
+
+    /*
+    Creates a MutableBigInt with value equal to 'value', and room for 'capacity' digits.
+     */
+    MutableBigInt(BigInt value, int capacity) {
+        digits = new int[Math.max(capacity, value.length)];
+        System.arraycopy(value.digits, 0, digits, 0, value.length);
+        length = value.length;
+        sign = value.sign;
+    }
+
+    /**
+     * In place addition.
+     * @param value
+     * @return this, after this += value
+     */
+    public MutableBigInt add(BigInt value) {
+        return add(value, 0);
+    }
+
+    /**
+     * In place addition of a value shifted by whole digits.
+     * @param value
+     * @param shift The number of (base 10^9) digits to shift value by (non-negative)
+     * @return this, after this += value * 10^(9 * shift)
+     */
+    public MutableBigInt add(BigInt value, int shift) {
+        return addSigned(value, shift, value.sign);
+    }
+
+    /**
+     * In place subtraction.
+     * @param value
+     * @return this, after this -= value
+     */
+    public MutableBigInt subtract(BigInt value) {
+        return subtract(value, 0);
+    }
+
+    /**
+     * In place subtraction of a value shifted by whole digits.
+     * @param value
+     * @param shift The number of (base 10^9) digits to shift value by (non-negative)
+     * @return this, after this -= value * 10^(9 * shift)
+     */
+    public MutableBigInt subtract(BigInt value, int shift) {
+        return addSigned(value, shift, -value.sign);
+    }
+
+    /**
+     * In place fused multiplication and addition. When the product has the sign of this (or this
+     * is zero), its digits are accumulated right into this without creating it as a BigInt -
+     * otherwise it is added like add(first.multiply(second)).
+     * @param first
+     * @param second
+     * @return this, after this += first * second
+     */
+    public MutableBigInt multiplyAdd(BigInt first, BigInt second) {
+        if ((first.length == 1 && first.digits[0] == 0) || (second.length == 1 && second.digits[0] == 0)) {
+            return this;
+        }
+        int productSign = first.sign * second.sign;
+        if (!isZero() && sign != productSign) {
+            return add(first.multiply(second));
+        }
+        // the sum is at most one digit longer than the longer of this and the product
+        int sumLength = Math.max(length, first.length + second.length) + 1;
+        prepareForWrite(sumLength);
+        BigInt.addProduct(first, second, digits);
+        length = sumLength;
+        stripLeadingZeros();
+        sign = productSign;
+        return this;
+    }
+
+    /**
+     * In place multiplication by an int.
+     * @param factor
+     * @return this, after this *= factor
+     */
+    public MutableBigInt multiplyByInt(int factor) {
+        if (factor == 0 || isZero()) {
+            return setZero();
+        }
+        prepareForWrite(length + 2);
+        // |factor| <= 2^31, so every product and carry fit in a long
+        long magnitude = Math.abs((long)factor);
+        long carry = 0;
+        for (int i = 0; i < length; i++) {
+            long product = digits[i] * magnitude + carry;
+            digits[i] = (int)(product % BigInt.BASE);
+            carry = product / BigInt.BASE;
+        }
+        while (carry > 0) {
+            digits[length++] = (int)(carry % BigInt.BASE);
+            carry /= BigInt.BASE;
+        }
+        if (factor < 0) {
+            sign = -sign;
+        }
+        return this;
+    }
+
+    /**
+     * In place shift by whole (base 10^9) digits - a multiplication by 10^(9 * n) for a
+     * positive n, and a division by 10^(-9 * n), truncated towards zero, for a negative n.
+     * @param n
+     * @return this, after the shift
+     */
+    public MutableBigInt shift(int n) {
+        if (n == 0 || isZero()) {
+            return this;
+        }
+        if (n > 0) {
+            prepareForWrite(length + n);
+            System.arraycopy(digits, 0, digits, n, length);
+            Arrays.fill(digits, 0, n, 0);
+            length += n;
+            return this;
+        }
+        int drop = -n;
+        if (drop >= length) {
+            return setZero();
+        }
+        prepareForWrite(length);
+        System.arraycopy(digits, drop, digits, 0, length - drop);
+        Arrays.fill(digits, length - drop, length, 0);
+        length -= drop;
+        return this;
+    }
+
+    /**
+     * @return -1, 0 or 1 as this is negative, zero or positive
+     */
+    public int signum() {
+        return isZero() ? 0 : sign;
+    }
+
+    /**
+     * A snapshot of the current value. The digits are not copied - the next change to
+     * this MutableBigInt (if any) copies them instead, so the snapshot never changes.
+     * @return BigInt equal to this
+     */
+    public BigInt toBigInt() {
+        shared = true;
+        return BigInt.signedResult(digits, length, sign);
+    }
+
+    /**
+     * @return Value as a numeric string in base10.
+     */
+    public String toString() {
+        return toBigInt().toString();
+    }
+
+    private boolean isZero() {
+        return length == 1 && digits[0] == 0;
+    }
+
+    private MutableBigInt setZero() {
+        if (shared) {
+            digits = new int[digits.length];
+            shared = false;
+        }
+        else {
+            Arrays.fill(digits, 0, length, 0);
+        }
+        length = 1;
+        sign = 1;
+        return this;
+    }
+
+    /*
+    Makes sure that the buffer can be changed, and has room for 'capacity' digits.
+     */
+    private void prepareForWrite(int capacity) {
+        if (shared || digits.length < capacity) {
+            digits = Arrays.copyOf(digits, digits.length < capacity ? Math.max(capacity, 2 * digits.length) : digits.length);
+            shared = false;
+        }
+    }
+
+    /*
+    this += valueSign * |value| * BASE^shift
+     */
+    private MutableBigInt addSigned(BigInt value, int shift, int valueSign) {
+        if (value.length == 1 && value.digits[0] == 0) {
+            return this;
+        }
+        prepareForWrite(Math.max(length, value.length + shift) + 1);
+        if (isZero() || sign == valueSign) {
+            addMagnitude(value.digits, value.length, shift);
+            sign = valueSign;
+            return this;
+        }
+        int comparison = compareMagnitude(value.digits, value.length, shift);
+        if (comparison == 0) {
+            return setZero();
+        }
+        if (comparison > 0) {
+            subtractMagnitude(value.digits, value.length, shift);
+        }
+        else {
+            subtractFromMagnitude(value.digits, value.length, shift);
+            sign = valueSign;
+        }
+        return this;
+    }
+
+    /*
+    |this| += |value| * BASE^shift (the buffer has room for the result).
+     */
+    private void addMagnitude(int[] value, int valueLength, int shift) {
+        BigInt.addInto(value, 0, valueLength, digits, shift);
+        // the carry goes at most one digit past the longer value
+        length = Math.max(length, valueLength + shift);
+        if (digits[length] != 0) {
+            length++;
+        }
+    }
+
+    /*
+    |this| -= |value| * BASE^shift, where |this| > |value| * BASE^shift.
+     */
+    private void subtractMagnitude(int[] value, int valueLength, int shift) {
+        BigInt.subtractFrom(value, 0, valueLength, digits, shift);
+        stripLeadingZeros();
+    }
+
+    /*
+    |this| = |value| * BASE^shift - |this|, where |value| * BASE^shift > |this|.
+     */
+    private void subtractFromMagnitude(int[] value, int valueLength, int shift) {
+        int borrow = 0;
+        // below the shift, value's digits are zeros (and so is the result until the first non-zero digit)
+        for (int i = 0; i < shift; i++) {
+            int difference = -digits[i] - borrow;
+            borrow = difference < 0 ? 1 : 0;
+            digits[i] = difference + borrow * BigInt.BASE;
+        }
+        for (int j = 0; j < valueLength; j++) {
+            int difference = value[j] - digits[shift + j] - borrow;
+            borrow = difference < 0 ? 1 : 0;
+            digits[shift + j] = difference + borrow * BigInt.BASE;
+        }
+        length = shift + valueLength;
+        stripLeadingZeros();
+    }
+
+    /*
+    Comparison of |this| to |value| * BASE^shift (value is not zero).
+     */
+    private int compareMagnitude(int[] value, int valueLength, int shift) {
+        if (length != valueLength + shift) {
+            return length > valueLength + shift ? 1 : -1;
+        }
+        for (int i = length - 1; i >= shift; i--) {
+            if (digits[i] != value[i - shift]) {
+                return digits[i] > value[i - shift] ? 1 : -1;
+            }
+        }
+        for (int i = shift - 1; i >= 0; i--) {
+            if (digits[i] != 0) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private void stripLeadingZeros() {
+        while (length > 1 && digits[length - 1] == 0) {
+            length--;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+/**
+ * VectorMagnitudes - BigInt's digit by digit addition and subtraction with the (incubating)
+ * Java Vector API, for a whole vector of digits at a time.
+ * This class depends on the jdk.incubator.vector module, so it is kept out of the main source
+ * directory, and compiled (after the main sources) with:
+ *     javac --add-modules jdk.incubator.vector -cp out -d out src/vector/VectorMagnitudes.java
+ * BigInt picks it up at runtime when it is on the class path and the module is present:
+ *     java --add-modules jdk.incubator.vector -cp out Main
+ * and falls back to its own scalar loops otherwise. The Maven build (pom.xml) does both.
+ */
+public class VectorMagnitudes implements BigInt.VectorKernels {
+    /*
+    The digit sums (or differences) of a whole vector of digits are computed at once, and
+    reduced to [0, BASE) - the carry out of every lane is whether its sum reached BASE. The
+    carries into the lanes are then simply the carries out of the digits below them, which
+    are found with a second (shifted by one digit) load of the inputs instead of moving
+    values across lanes. That is exact unless a carry has to ripple on through a digit that
+    ends up equal to BASE - which is rare (about one digit in 10^9 for random values) - or
+    came in from such a ripple in the previous vector. Those vectors are redone with the
+    scalar loop. Subtraction is the same, with borrows out of negative differences.
+     */
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final int BASE = 1000000000;
+
+    @Override
+    public int add(int[] first, int[] second, int length, int[] result) {
+        if (length == 0) {
+            return 0;
+        }
+        int digitSum = first[0] + second[0];
+        int carry = digitSum >= BASE ? 1 : 0;
+        result[0] = digitSum - carry * BASE;
+        int i = 1;
+        for (int bound = 1 + SPECIES.loopBound(length - 1); i < bound; i += LANES) {
+            // the carry out of the digit below the vector, as the shifted load sees it
+            int lowerCarry = first[i - 1] + second[i - 1] >= BASE ? 1 : 0;
+            IntVector sum = IntVector.fromArray(SPECIES, first, i).add(IntVector.fromArray(SPECIES, second, i));
+            sum = sum.sub(BASE, sum.compare(VectorOperators.GE, BASE));
+            IntVector lowerSum = IntVector.fromArray(SPECIES, first, i - 1).add(IntVector.fromArray(SPECIES, second, i - 1));
+            sum = sum.add(1, lowerSum.compare(VectorOperators.GE, BASE));
+            if (carry == lowerCarry && !sum.compare(VectorOperators.EQ, BASE).anyTrue()) {
+                sum.intoArray(result, i);
+                carry = first[i + LANES - 1] + second[i + LANES - 1] >= BASE ? 1 : 0;
+            }
+            else {
+                carry = addDigits(first, second, i, i + LANES, carry, result);
+            }
+        }
+        return addDigits(first, second, i, length, carry, result);
+    }
+
+    @Override
+    public int subtract(int[] value, int[] subtract, int length, int[] result) {
+        if (length == 0) {
+            return 0;
+        }
+        int digitSub = value[0] - subtract[0];
+        int borrow = digitSub < 0 ? 1 : 0;
+        result[0] = digitSub + borrow * BASE;
+        int i = 1;
+        for (int bound = 1 + SPECIES.loopBound(length - 1); i < bound; i += LANES) {
+            int lowerBorrow = value[i - 1] - subtract[i - 1] < 0 ? 1 : 0;
+            IntVector difference = IntVector.fromArray(SPECIES, value, i).sub(IntVector.fromArray(SPECIES, subtract, i));
+            difference = difference.add(BASE, difference.compare(VectorOperators.LT, 0));
+            IntVector lowerDifference = IntVector.fromArray(SPECIES, value, i - 1).sub(IntVector.fromArray(SPECIES, subtract, i - 1));
+            difference = difference.sub(1, lowerDifference.compare(VectorOperators.LT, 0));
+            if (borrow == lowerBorrow && !difference.compare(VectorOperators.LT, 0).anyTrue()) {
+                difference.intoArray(result, i);
+                borrow = value[i + LANES - 1] - subtract[i + LANES - 1] < 0 ? 1 : 0;
+            }
+            else {
+                borrow = subtractDigits(value, subtract, i, i + LANES, borrow, result);
+            }
+        }
+        return subtractDigits(value, subtract, i, length, borrow, result);
+    }
+
+    // the scalar loops, for the digits in [from, to)
+    private static int addDigits(int[] first, int[] second, int from, int to, int carry, int[] result) {
+        for (int i = from; i < to; i++) {
+            int digitSum = first[i] + second[i] + carry;
+            carry = digitSum >= BASE ? 1 : 0;
+            result[i] = digitSum - carry * BASE;
+        }
+        return carry;
+    }
+
+    private static int subtractDigits(int[] value, int[] subtract, int from, int to, int borrow, int[] result) {
+        for (int i = from; i < to; i++) {
+            int digitSub = value[i] - subtract[i] - borrow;
+            borrow = digitSub < 0 ? 1 : 0;
+            result[i] = digitSub + borrow * BASE;
+        }
+        return borrow;
+    }
+}